@@ -28,6 +28,9 @@ import org.slf4j.LoggerFactory;
 
 public class Log {
     public static boolean PRINT_TRACE_METHOD = true;
+    // Full network messages and data sets are only logged if enabled, as the output grows with the size of the
+    // offer book. Otherwise a SampledLogger is used. Can be switched at runtime.
+    private static volatile boolean fullNetworkDataLogged;
     private static SizeBasedTriggeringPolicy triggeringPolicy;
     private static Logger logbackLogger;
 
@@ -66,7 +69,20 @@ public class Log {
         logbackLogger.addAppender(appender);
     }
 
+    public static boolean isFullNetworkDataLogged() {
+        return fullNetworkDataLogged;
+    }
+
+    public static void setFullNetworkDataLogged(boolean fullNetworkDataLogged) {
+        Log.fullNetworkDataLogged = fullNetworkDataLogged;
+        LoggerFactory.getLogger(Log.class).info("Full network data logging " + (fullNetworkDataLogged ? "enabled" : "disabled"));
+    }
+
+    // We skip the stack trace lookup if trace methods are not printed anyway (release version)
     public static void traceCall() {
+        if (!PRINT_TRACE_METHOD)
+            return;
+
         StackTraceElement stackTraceElement = new Throwable().getStackTrace()[1];
         String methodName = stackTraceElement.getMethodName();
         if (methodName.equals("<init>"))
@@ -76,6 +92,9 @@ public class Log {
     }
 
     public static void traceCall(String message) {
+        if (!PRINT_TRACE_METHOD)
+            return;
+
         StackTraceElement stackTraceElement = new Throwable().getStackTrace()[1];
         String methodName = stackTraceElement.getMethodName();
         if (methodName.equals("<init>"))
@@ -0,0 +1,60 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.app;
+
+import org.slf4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Logs frequent events (e.g. network messages or data storage changes) at INFO at most once per interval with the
+ * number of events since the last output and a short summary of the latest one. The single events are only logged
+ * at TRACE. That keeps the INFO output bounded, independent of the message rate or the size of the data.
+ * <p>
+ * Thread safe.
+ */
+public class SampledLogger {
+    private final Logger log;
+    private final String eventName;
+    private final long interval;
+    private final AtomicLong numEvents = new AtomicLong();
+    private final AtomicLong lastLogTime = new AtomicLong();
+
+    public SampledLogger(Logger log, String eventName, long interval, TimeUnit timeUnit) {
+        this.log = log;
+        this.eventName = eventName;
+        this.interval = timeUnit.toMillis(interval);
+    }
+
+    /**
+     * @param summarySupplier Only called if the summary gets logged. The summary should be short and must not grow
+     *                        with the size of the data (e.g. counts, hashes, sizes).
+     */
+    public void log(Supplier<String> summarySupplier) {
+        numEvents.incrementAndGet();
+        if (log.isTraceEnabled())
+            log.trace("{}: {}", eventName, summarySupplier.get());
+
+        long now = System.currentTimeMillis();
+        long last = lastLogTime.get();
+        if (now - last >= interval && lastLogTime.compareAndSet(last, now) && log.isInfoEnabled())
+            log.info("{}: {} since last summary. Latest: {}", eventName, numEvents.getAndSet(0), summarySupplier.get());
+    }
+}
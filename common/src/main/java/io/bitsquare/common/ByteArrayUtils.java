@@ -17,65 +17,19 @@
 
 package io.bitsquare.common;
 
+import io.bitsquare.common.util.SerializationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.*;
-
 public class ByteArrayUtils {
     private static final Logger log = LoggerFactory.getLogger(ByteArrayUtils.class);
     private static long lastTimeStamp = System.currentTimeMillis();
 
     public static <T> T byteArrayToObject(byte[] data) {
-        ByteArrayInputStream bis = new ByteArrayInputStream(data);
-        ObjectInput in = null;
-        Object result = null;
-        try {
-            in = new ObjectInputStream(bis);
-            result = in.readObject();
-        } catch (Exception e) {
-            e.printStackTrace();
-        } finally {
-            try {
-                bis.close();
-            } catch (IOException ex) {
-                // ignore close exception
-            }
-            try {
-                if (in != null) {
-                    in.close();
-                }
-            } catch (IOException ex) {
-                // ignore close exception
-            }
-        }
-        return (T) result;
+        return SerializationUtil.deserialize(data);
     }
 
     public static byte[] objectToByteArray(Object object) {
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        ObjectOutput out = null;
-        byte[] result = null;
-        try {
-            out = new ObjectOutputStream(bos);
-            out.writeObject(object);
-            result = bos.toByteArray();
-        } catch (IOException e) {
-            e.printStackTrace();
-        } finally {
-            try {
-                if (out != null) {
-                    out.close();
-                }
-            } catch (IOException ex) {
-                // ignore close exception
-            }
-            try {
-                bos.close();
-            } catch (IOException ex) {
-                // ignore close exception
-            }
-        }
-        return result;
+        return SerializationUtil.serialize(object);
     }
 }
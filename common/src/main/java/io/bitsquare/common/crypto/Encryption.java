@@ -17,7 +17,7 @@
 
 package io.bitsquare.common.crypto;
 
-import io.bitsquare.common.util.Utilities;
+import io.bitsquare.common.util.SerializationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.spongycastle.util.encoders.Hex;
@@ -144,7 +144,7 @@ public class Encryption {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     public static byte[] encryptPayloadWithHmac(Serializable object, SecretKey secretKey) throws CryptoException {
-        return encryptPayloadWithHmac(Utilities.serialize(object), secretKey);
+        return encryptPayloadWithHmac(SerializationUtil.serialize(object), secretKey);
     }
 
     public static byte[] encryptPayloadWithHmac(byte[] payload, SecretKey secretKey) throws CryptoException {
@@ -240,7 +240,7 @@ public class Encryption {
         if (!isValid)
             throw new CryptoException("Signature verification failed.");
 
-        Serializable decryptedPayload = Utilities.deserialize(decryptPayloadWithHmac(sealedAndSigned.encryptedPayloadWithHmac, secretKey));
+        Serializable decryptedPayload = SerializationUtil.deserialize(decryptPayloadWithHmac(sealedAndSigned.encryptedPayloadWithHmac, secretKey));
         return new DecryptedPayloadWithPubKey(decryptedPayload, sealedAndSigned.sigPublicKey);
     }
 
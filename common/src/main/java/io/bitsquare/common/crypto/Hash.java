@@ -18,11 +18,12 @@
 package io.bitsquare.common.crypto;
 
 import com.google.common.base.Charsets;
-import io.bitsquare.common.util.Utilities;
+import io.bitsquare.common.util.SerializationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.spongycastle.util.encoders.Hex;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
 import java.security.MessageDigest;
@@ -37,23 +38,24 @@ public class Hash {
      * @return Hash of data
      */
     public static byte[] getHash(byte[] data) {
-        MessageDigest digest;
-        try {
-            digest = MessageDigest.getInstance("SHA-256", "BC");
-        } catch (NoSuchAlgorithmException | NoSuchProviderException e) {
-            log.error("Could not create MessageDigest for hash. " + e.getMessage());
-            throw new RuntimeException(e);
-        }
+        MessageDigest digest = getMessageDigest();
         digest.update(data, 0, data.length);
         return digest.digest();
     }
 
     /**
-     * @param data Any serializable object. Will be converted into a byte array using Java serialisation.
+     * @param data Any serializable object. Will be serialized using Java serialisation directly into the digest.
      * @return Hash of data
      */
     public static byte[] getHash(Serializable data) {
-        return getHash(Utilities.serialize(data));
+        MessageDigest digest = getMessageDigest();
+        try {
+            SerializationUtil.updateDigest(data, digest);
+        } catch (IOException e) {
+            log.error("Could not serialize data for hash. " + e.getMessage());
+            throw new RuntimeException(e);
+        }
+        return digest.digest();
     }
 
     /**
@@ -80,5 +82,14 @@ public class Hash {
         return getHash(ByteBuffer.allocate(4).putInt(data).array());
     }
 
+    private static MessageDigest getMessageDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256", "BC");
+        } catch (NoSuchAlgorithmException | NoSuchProviderException e) {
+            log.error("Could not create MessageDigest for hash. " + e.getMessage());
+            throw new RuntimeException(e);
+        }
+    }
+
 }
 
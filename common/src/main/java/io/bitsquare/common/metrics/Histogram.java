@@ -0,0 +1,107 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.common.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free latency histogram with power of two buckets in microseconds (1 us up to about 67 sec.).
+ * Percentiles are approximated by the upper bound of the bucket.
+ */
+public class Histogram {
+    private static final int NUM_BUCKETS = 27;
+
+    public final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public Histogram(String name) {
+        this.name = name;
+    }
+
+    public void record(long duration, TimeUnit timeUnit) {
+        long micros = Math.max(0, timeUnit.toMicros(duration));
+        // bucket i holds values < 2^i us
+        int bucket = Math.min(NUM_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        totalMicros.addAndGet(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMeanMicros() {
+        long numValues = count.get();
+        return numValues > 0 ? totalMicros.get() / numValues : 0;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros.get();
+    }
+
+    public long getTotalMicros() {
+        return totalMicros.get();
+    }
+
+    /**
+     * @param percentile Value between 0 and 100
+     * @return Upper bound in us of the bucket containing the percentile
+     */
+    public long getPercentileMicros(double percentile) {
+        long numValues = count.get();
+        if (numValues == 0)
+            return 0;
+
+        long threshold = (long) Math.ceil(numValues * percentile / 100d);
+        long sum = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            sum += buckets.get(i);
+            if (sum >= threshold)
+                return Math.min(1L << i, getMaxMicros());
+        }
+        return getMaxMicros();
+    }
+
+    @Override
+    public String toString() {
+        return name +
+                ": count=" + getCount() +
+                ", mean=" + formatMicros(getMeanMicros()) +
+                ", p50=" + formatMicros(getPercentileMicros(50)) +
+                ", p90=" + formatMicros(getPercentileMicros(90)) +
+                ", p99=" + formatMicros(getPercentileMicros(99)) +
+                ", max=" + formatMicros(getMaxMicros()) +
+                ", total=" + formatMicros(getTotalMicros());
+    }
+
+    private static String formatMicros(long micros) {
+        if (micros < 1000)
+            return micros + "us";
+        else if (micros < 1000_000)
+            return String.format("%.1fms", micros / 1000d);
+        else
+            return String.format("%.2fs", micros / 1000_000d);
+    }
+}
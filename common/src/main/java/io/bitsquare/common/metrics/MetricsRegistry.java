@@ -0,0 +1,37 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.common.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Application wide registry of latency histograms, accessed by name (e.g. "task.SignPayoutTx").
+ */
+public class MetricsRegistry {
+    private static final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    public static Histogram getHistogram(String name) {
+        return histograms.computeIfAbsent(name, Histogram::new);
+    }
+
+    public static Map<String, Histogram> getHistograms() {
+        return Collections.unmodifiableMap(histograms);
+    }
+}
@@ -18,6 +18,7 @@
 package io.bitsquare.common.taskrunner;
 
 public interface Model {
+    // Called by the TaskRunner at the end of a task sequence, at failures and after checkpoint tasks
     void persist();
 
     void onComplete();
@@ -52,8 +52,24 @@ public abstract class Task<T extends Model> {
             errorMessage += "\nException: " + t.toString();
     }
 
+    /**
+     * Tasks with effects which cannot be repeated (e.g. publishing a transaction) return true, so the model gets
+     * persisted directly after them and not only at the end of the task sequence.
+     */
+    protected boolean isCheckpoint() {
+        return false;
+    }
+
+    /**
+     * Tasks which wait for an external event which can take long (e.g. a block with a certain height) return true.
+     * The task runner does not defer persisting the changes of the model while such a task is waiting.
+     */
+    protected boolean isLongRunning() {
+        return false;
+    }
+
     protected void complete() {
-        taskHandler.handleComplete();
+        taskHandler.handleComplete(isCheckpoint());
     }
 
     protected void failed(String message) {
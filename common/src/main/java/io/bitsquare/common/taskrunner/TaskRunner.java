@@ -19,40 +19,50 @@ package io.bitsquare.common.taskrunner;
 
 import io.bitsquare.common.handlers.ErrorMessageHandler;
 import io.bitsquare.common.handlers.ResultHandler;
+import io.bitsquare.common.metrics.MetricsRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Arrays;
-import java.util.Queue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Runs a sequence of tasks on a shared model.
+ * <p>
+ * The model gets persisted once when the sequence has completed or failed and after tasks which declare themselves
+ * as checkpoint (see Task.isCheckpoint), not after each task.
+ * <p>
+ * Tasks are created by factories (usually constructor references), so there is no reflection per step. The duration
+ * of each task is recorded in the MetricsRegistry under "task.[task class name]".
+ */
 public class TaskRunner<T extends Model> {
     private static final Logger log = LoggerFactory.getLogger(TaskRunner.class);
 
-    private final Queue<Class<? extends Task>> tasks = new LinkedBlockingQueue<>();
+    // We only run on the UserThread, so no concurrent collection is needed
+    private final List<TaskFactory<T>> tasks = new ArrayList<>();
     private final T sharedModel;
-    private final Class<T> sharedModelClass;
     private final ResultHandler resultHandler;
     private final ErrorMessageHandler errorMessageHandler;
     private boolean failed = false;
     private boolean isCanceled;
 
-    private Class<? extends Task> currentTask;
+    private int nextTaskIndex;
+    private Task<T> currentTask;
+    private long currentTaskStartTime;
 
 
     public TaskRunner(T sharedModel, ResultHandler resultHandler, ErrorMessageHandler errorMessageHandler) {
-        this(sharedModel, (Class<T>) sharedModel.getClass(), resultHandler, errorMessageHandler);
-    }
-
-    public TaskRunner(T sharedModel, Class<T> sharedModelClass, ResultHandler resultHandler, ErrorMessageHandler errorMessageHandler) {
         this.sharedModel = sharedModel;
         this.resultHandler = resultHandler;
         this.errorMessageHandler = errorMessageHandler;
-        this.sharedModelClass = sharedModelClass;
     }
 
-    public final void addTasks(Class<? extends Task<T>>... items) {
-        tasks.addAll(Arrays.asList(items));
+    @SafeVarargs
+    public final void addTasks(TaskFactory<T>... items) {
+        // We don't pass the generic array on (e.g. to Arrays.asList), so the @SafeVarargs is valid
+        for (TaskFactory<T> item : items)
+            tasks.add(item);
     }
 
     public void run() {
@@ -61,16 +71,23 @@ public class TaskRunner<T extends Model> {
 
     private void next() {
         if (!failed && !isCanceled) {
-            if (tasks.size() > 0) {
+            if (nextTaskIndex < tasks.size()) {
                 try {
-                    currentTask = tasks.poll();
-                    log.trace("Run task: " + currentTask.getSimpleName());
-                    currentTask.getDeclaredConstructor(TaskRunner.class, sharedModelClass).newInstance(this, sharedModel).run();
+                    currentTaskStartTime = System.nanoTime();
+                    // Cleared first, so a failure at create is not reported for the previous task
+                    currentTask = null;
+                    currentTask = tasks.get(nextTaskIndex++).create(this, sharedModel);
+                    log.trace("Run task: " + getCurrentTaskName());
+                    if (currentTask.isLongRunning())
+                        onLongRunningTaskStarted();
+                    currentTask.run();
                 } catch (Throwable throwable) {
                     throwable.printStackTrace();
                     handleErrorMessage("Error at taskRunner: " + throwable.getMessage());
                 }
             } else {
+                sharedModel.persist();
+                onFinished();
                 resultHandler.handleResult();
             }
         }
@@ -80,16 +97,48 @@ public class TaskRunner<T extends Model> {
         isCanceled = true;
     }
 
-    void handleComplete() {
-        log.trace("Task completed: " + currentTask.getSimpleName());
-        sharedModel.persist();
+    void handleComplete(boolean isCheckpoint) {
+        log.trace("Task completed: " + getCurrentTaskName());
+        recordTaskDuration();
+        if (isCheckpoint)
+            sharedModel.persist();
         next();
     }
 
     void handleErrorMessage(String errorMessage) {
-        log.error("Task failed: " + currentTask.getSimpleName());
+        log.error("Task failed: " + getCurrentTaskName());
         log.error("errorMessage: " + errorMessage);
+        recordTaskDuration();
         failed = true;
+        // We persist the changes done by the tasks before the failure
+        sharedModel.persist();
+        onFinished();
         errorMessageHandler.handleErrorMessage(errorMessage);
     }
+
+    // Called when the task sequence has completed or failed, before the result or error handler gets called
+    protected void onFinished() {
+    }
+
+    // Called before a task is run which declares itself as long running (see Task.isLongRunning)
+    protected void onLongRunningTaskStarted() {
+    }
+
+    // Called after each task with the duration in ns
+    protected void onTaskCompleted(String taskName, long duration) {
+    }
+
+    // Time from the task creation until it called complete or failed, including asynchronous operations of the task
+    private void recordTaskDuration() {
+        if (currentTask != null) {
+            long duration = System.nanoTime() - currentTaskStartTime;
+            String taskName = getCurrentTaskName();
+            MetricsRegistry.getHistogram("task." + taskName).record(duration, TimeUnit.NANOSECONDS);
+            onTaskCompleted(taskName, duration);
+        }
+    }
+
+    private String getCurrentTaskName() {
+        return currentTask != null ? currentTask.getClass().getSimpleName() : "";
+    }
 }
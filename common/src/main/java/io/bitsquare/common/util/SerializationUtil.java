@@ -0,0 +1,193 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.common.util;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * Java serialisation with thread local reusable buffers.
+ * <p>
+ * Serialized data is written into a growable buffer which is kept per thread and reused for the next call, so the
+ * usual grow-by-doubling and the extra copy in ByteArrayOutputStream.toByteArray() only happen at warm up.
+ * For hashing and size checks we write directly into a MessageDigest or a counting stream and never materialize
+ * the serialized bytes.
+ */
+public class SerializationUtil {
+    private static final Logger log = LoggerFactory.getLogger(SerializationUtil.class);
+
+    private static final int INITIAL_BUFFER_SIZE = 4 * 1024;
+    // Buffers which grew beyond that size (e.g. after serializing a large GetDataResponse) are not kept
+    private static final int MAX_RETAINED_BUFFER_SIZE = 256 * 1024;
+
+    private static final ThreadLocal<ReusableByteArrayOutputStream> buffers =
+            ThreadLocal.withInitial(() -> new ReusableByteArrayOutputStream(INITIAL_BUFFER_SIZE));
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @param object Object to serialize
+     * @return The serialized object or null if serialisation failed.
+     */
+    public static byte[] serialize(Object object) {
+        ReusableByteArrayOutputStream bos = acquireBuffer();
+        try {
+            writeObject(object, bos);
+            return bos.toByteArray();
+        } catch (IOException e) {
+            e.printStackTrace();
+            log.error("Serialisation failed. " + e.getMessage());
+            return null;
+        } finally {
+            releaseBuffer(bos);
+        }
+    }
+
+    /**
+     * @param data Serialized object
+     * @return The deserialized object or null if deserialisation failed.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T deserialize(byte[] data) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return (T) in.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            e.printStackTrace();
+            log.error("Deserialisation failed. " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes the serialized object into the outputStream. The outputStream is flushed but not closed.
+     */
+    public static void serialize(Object object, OutputStream outputStream) throws IOException {
+        writeObject(object, outputStream);
+    }
+
+    /**
+     * Updates the digest with the serialized object without creating a byte array of the serialized data.
+     * The resulting digest is the same as when the digest gets updated with the result of serialize(object).
+     */
+    public static void updateDigest(Object object, MessageDigest digest) throws IOException {
+        writeObject(object, new DigestOutputStream(ByteStreams.nullOutputStream(), digest));
+    }
+
+    /**
+     * @param object Object to serialize
+     * @return The size in bytes of the serialized object. The serialized bytes are discarded while counting.
+     */
+    public static long getSerializedSize(Object object) {
+        CountingOutputStream countingOutputStream = new CountingOutputStream(ByteStreams.nullOutputStream());
+        try {
+            writeObject(object, countingOutputStream);
+            return countingOutputStream.getCount();
+        } catch (IOException e) {
+            e.printStackTrace();
+            log.error("Serialisation failed. " + e.getMessage());
+            return -1;
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static void writeObject(Object object, OutputStream outputStream) throws IOException {
+        ObjectOutputStream out = new ObjectOutputStream(outputStream);
+        out.writeObject(object);
+        out.flush();
+    }
+
+    private static ReusableByteArrayOutputStream acquireBuffer() {
+        ReusableByteArrayOutputStream bos = buffers.get();
+        // A custom writeObject method might call us again while the thread local buffer is in use
+        if (bos.inUse)
+            return new ReusableByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+
+        bos.inUse = true;
+        return bos;
+    }
+
+    private static void releaseBuffer(ReusableByteArrayOutputStream bos) {
+        if (buffers.get() == bos) {
+            if (bos.capacity() > MAX_RETAINED_BUFFER_SIZE)
+                buffers.set(new ReusableByteArrayOutputStream(INITIAL_BUFFER_SIZE));
+            else
+                bos.reset();
+
+            bos.inUse = false;
+        }
+    }
+
+    // Not thread safe, only used from the owning thread
+    private static class ReusableByteArrayOutputStream extends OutputStream {
+        private byte[] buf;
+        private int count;
+        private boolean inUse;
+
+        ReusableByteArrayOutputStream(int size) {
+            buf = new byte[size];
+        }
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(count + 1);
+            buf[count] = (byte) b;
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensureCapacity(count + len);
+            System.arraycopy(b, off, buf, count, len);
+            count += len;
+        }
+
+        void reset() {
+            count = 0;
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, count);
+        }
+
+        private void ensureCapacity(int minCapacity) {
+            if (minCapacity - buf.length > 0) {
+                // grow by 50%
+                int newCapacity = Math.max(buf.length + (buf.length >> 1), minCapacity);
+                buf = Arrays.copyOf(buf, newCapacity);
+            }
+        }
+    }
+}
@@ -239,57 +239,14 @@ public class Utilities {
     }*/
 
     public static <T extends Serializable> T deserialize(byte[] data) {
-        ByteArrayInputStream bis = new ByteArrayInputStream(data);
-        ObjectInput in = null;
-        Object result = null;
-        try {
-            in = new ObjectInputStream(bis);
-            result = in.readObject();
-            if (!(result instanceof Serializable))
-                throw new RuntimeException("Object not of type Serializable");
-        } catch (Exception e) {
-            e.printStackTrace();
-        } finally {
-            try {
-                bis.close();
-            } catch (IOException ex) {
-                // ignore close exception
-            }
-            try {
-                if (in != null) {
-                    in.close();
-                }
-            } catch (IOException ex) {
-                // ignore close exception
-            }
-        }
+        Object result = SerializationUtil.deserialize(data);
+        if (result != null && !(result instanceof Serializable))
+            throw new RuntimeException("Object not of type Serializable");
         return (T) result;
     }
 
     public static byte[] serialize(Serializable object) {
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        ObjectOutput out = null;
-        byte[] result = null;
-        try {
-            out = new ObjectOutputStream(bos);
-            out.writeObject(object);
-            out.flush();
-            result = bos.toByteArray().clone();
-        } catch (IOException e) {
-            e.printStackTrace();
-        } finally {
-            try {
-                if (out != null) {
-                    out.close();
-                }
-            } catch (IOException ignore) {
-            }
-            try {
-                bos.close();
-            } catch (IOException ignore) {
-            }
-        }
-        return result;
+        return SerializationUtil.serialize(object);
     }
 
     public static void deleteDirectory(File file) throws IOException {
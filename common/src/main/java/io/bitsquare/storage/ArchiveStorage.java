@@ -0,0 +1,109 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.storage;
+
+import io.bitsquare.common.util.SerializationUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Stores each entry in a separate file of a directory, so adding an entry does not rewrite the other entries and
+ * entries can be read on demand instead of keeping all of them in memory.
+ * <p>
+ * The entry is serialized on the calling thread and written on the I/O thread of the PersistenceService. Reads are
+ * done on the calling thread.
+ */
+public class ArchiveStorage<T extends Serializable> {
+    private static final Logger log = LoggerFactory.getLogger(ArchiveStorage.class);
+
+    private final File dir;
+    // Entries which are not written yet
+    private final Map<String, T> pendingEntries = new ConcurrentHashMap<>();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public ArchiveStorage(File storageDir, String dirName) {
+        this.dir = new File(storageDir, dirName);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public void write(String id, T entry) {
+        // We serialize on the calling thread as the entry might get modified later
+        byte[] data = SerializationUtil.serialize(entry);
+        if (data != null) {
+            pendingEntries.put(id, entry);
+            PersistenceService.execute(() -> {
+                FileManager.writeFile(dir, getFile(id), outputStream -> outputStream.write(data));
+                pendingEntries.remove(id, entry);
+            });
+        } else {
+            log.error("Serialisation of archive entry failed. id=" + id);
+        }
+    }
+
+    /**
+     * @return The entry or null if there is no entry with that id or it could not be read.
+     */
+    @Nullable
+    public T read(String id) {
+        T pending = pendingEntries.get(id);
+        if (pending != null)
+            return pending;
+
+        File file = getFile(id);
+        return file.exists() ? FileManager.readFile(file) : null;
+    }
+
+    public boolean contains(String id) {
+        return pendingEntries.containsKey(id) || getFile(id).exists();
+    }
+
+    public List<String> getIds() {
+        File[] files = dir.listFiles(file -> file.isFile() && !file.getName().endsWith(".tmp"));
+        if (files == null)
+            return Collections.emptyList();
+
+        return Arrays.asList(files).stream().map(File::getName).collect(Collectors.toList());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private File getFile(String id) {
+        return new File(dir, id);
+    }
+}
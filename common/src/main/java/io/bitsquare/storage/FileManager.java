@@ -36,7 +36,6 @@ package io.bitsquare.storage;
 
 
 import com.google.common.io.Files;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.bitsquare.common.UserThread;
 import org.bitcoinj.core.Utils;
 import org.slf4j.Logger;
@@ -44,9 +43,9 @@ import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.nio.file.Paths;
-import java.util.Random;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -64,12 +63,13 @@ public class FileManager<T> {
 
     private final File dir;
     private final File storageFile;
-    private final ScheduledThreadPoolExecutor executor;
     private final AtomicBoolean savePending;
     private final long delay;
     private final TimeUnit delayTimeUnit;
-    private final Callable<Void> saveFileTask;
+    private final Runnable saveFileTask;
+    private final PersistenceService.FileMetrics metrics;
     private T serializable;
+    private PersistenceService.Priority priority = PersistenceService.Priority.NORMAL;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -80,44 +80,31 @@ public class FileManager<T> {
         this.dir = dir;
         this.storageFile = storageFile;
 
-        ThreadFactoryBuilder builder = new ThreadFactoryBuilder()
-                .setDaemon(true)
-                .setNameFormat("FileManager-%d")
-                .setPriority(Thread.MIN_PRIORITY);  // Avoid competing with the GUI thread.
-
-        // An executor that starts up threads when needed and shuts them down later.
-        executor = new ScheduledThreadPoolExecutor(1, builder.build());
-        executor.setKeepAliveTime(5, TimeUnit.SECONDS);
-        executor.allowCoreThreadTimeOut(true);
-        executor.setMaximumPoolSize(10);
-        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
-
-        // File must only be accessed from the auto-save executor from now on, to avoid simultaneous access.
+        // Writes are executed on the shared I/O thread of the PersistenceService, which also flushes pending
+        // writes at shutdown.
         savePending = new AtomicBoolean();
         this.delay = delay;
         this.delayTimeUnit = checkNotNull(delayTimeUnit);
+        metrics = PersistenceService.getMetrics(storageFile.getName());
 
         saveFileTask = () -> {
-            Thread.currentThread().setName("Save-file-task-" + new Random().nextInt(10000));
-            // Runs in an auto save thread.
-            if (!savePending.getAndSet(false)) {
+            // Runs on the scheduler thread of the PersistenceService.
+            if (!savePending.get()) {
                 // Some other scheduled request already beat us to it.
-                return null;
+                return;
             }
-            saveNowInternal(serializable);
-            return null;
+            // The serializable gets mutated on the UserThread, so we take the snapshot there and write it in
+            // the background. Changes until the snapshot is taken are still covered by that save.
+            UserThread.execute(() -> {
+                if (!savePending.getAndSet(false))
+                    return;
+
+                T snapshot = getSnapshot(serializable);
+                PersistenceService.execute(() -> saveNowInternal(snapshot), priority);
+            });
         };
 
-        Runtime.getRuntime().addShutdownHook(new Thread() {
-            @Override
-            public void run() {
-                try {
-                    FileManager.this.shutDown();
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
-            }
-        });
+        PersistenceService.register(this::flushPending);
     }
 
 
@@ -127,31 +114,46 @@ public class FileManager<T> {
 
     /**
      * Actually write the wallet file to disk, using an atomic rename when possible. Runs on the current thread.
+     *
+     * @return true if the file was written successfully
      */
-    public void saveNow(T serializable) {
-        saveNowInternal(serializable);
+    public boolean saveNow(T serializable) {
+        return saveNowInternal(serializable);
     }
 
     /**
      * Queues up a save in the background. Useful for not very important wallet changes.
+     * The snapshot of the serializable is taken on the UserThread when the delayed save gets executed.
      */
     public void saveLater(T serializable) {
         this.serializable = serializable;
+        metrics.onRequest();
 
         if (savePending.getAndSet(true))
             return;   // Already pending.
-        executor.schedule(saveFileTask, delay, delayTimeUnit);
+
+        try {
+            PersistenceService.schedule(saveFileTask, delay, delayTimeUnit);
+        } catch (RejectedExecutionException e) {
+            // We are shutting down, the pending save gets written by flushPending
+            log.debug("Save requested after shutdown. storageFile=" + storageFile);
+        }
+    }
+
+    /**
+     * Writes of files with a higher priority are executed before queued writes of files with a lower priority.
+     * Set it before the first write, as writes of the same file are only kept in order with the same priority.
+     */
+    public void setPriority(PersistenceService.Priority priority) {
+        this.priority = priority;
+    }
+
+    public PersistenceService.Priority getPriority() {
+        return priority;
     }
 
     public synchronized T read(File file) {
-        log.debug("read" + file);
-        try (final FileInputStream fileInputStream = new FileInputStream(file);
-             final ObjectInputStream objectInputStream = new ObjectInputStream(fileInputStream)) {
-            return (T) objectInputStream.readObject();
-        } catch (Throwable t) {
-            log.error("Exception at read: " + t.getMessage());
-            return null;
-        }
+        return readFile(file);
     }
 
     public synchronized void removeFile(String fileName) {
@@ -161,6 +163,10 @@ public class FileManager<T> {
         if (!result)
             log.warn("Could not delete file: " + file.toString());
 
+        File journalFile = new File(dir, fileName + Journal.FILE_EXTENSION);
+        if (journalFile.exists() && !journalFile.delete())
+            log.warn("Could not delete journal: " + journalFile.toString());
+
         File backupDir = new File(Paths.get(dir.getAbsolutePath(), "backup").toString());
         if (backupDir.exists()) {
             File backupFile = new File(Paths.get(dir.getAbsolutePath(), "backup", fileName).toString());
@@ -174,21 +180,12 @@ public class FileManager<T> {
 
 
     /**
-     * Shut down auto-saving.
+     * Writes a pending save on the calling thread. Called by the PersistenceService at shutdown on the UserThread
+     * after the I/O thread has terminated.
      */
-    public void shutDown() {
-      /*  if (serializable != null)
-            log.debug("shutDown " + serializable.getClass().getSimpleName());
-        else
-            log.debug("shutDown");*/
-
-        executor.shutdown();
-        try {
-            //executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS); // forever
-            executor.awaitTermination(5, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+    private void flushPending() {
+        if (savePending.getAndSet(false))
+            saveNowInternal(getSnapshot(serializable));
     }
 
     public synchronized void removeAndBackupFile(String fileName) throws IOException {
@@ -215,19 +212,64 @@ public class FileManager<T> {
     // Private
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    private void saveNowInternal(T serializable) {
+    // Returns a copy which is not affected by later changes on the UserThread, or the object itself if we don't
+    // know how to copy it (it is then serialized as it is, like before).
+    @SuppressWarnings("unchecked")
+    static <T> T getSnapshot(T serializable) {
+        if (serializable instanceof Snapshotable)
+            return (T) ((Snapshotable) serializable).getSnapshot();
+        else if (serializable != null && serializable.getClass() == HashMap.class)
+            return (T) new HashMap<>((HashMap) serializable);
+        else if (serializable != null && serializable.getClass() == ArrayList.class)
+            return (T) new ArrayList<>((ArrayList) serializable);
+        else
+            return serializable;
+    }
+
+    // Used as well by the StartupLoader, which reads the files before the FileManager is created
+    @SuppressWarnings("unchecked")
+    static <T> T readFile(File file) {
+        log.debug("read" + file);
+        try (final FileInputStream fileInputStream = new FileInputStream(file);
+             final ObjectInputStream objectInputStream = new ObjectInputStream(fileInputStream)) {
+            return (T) objectInputStream.readObject();
+        } catch (Throwable t) {
+            log.error("Exception at read: " + t.getMessage());
+            return null;
+        }
+    }
+
+    private boolean saveNowInternal(T serializable) {
         long now = System.currentTimeMillis();
-        saveToFile(serializable, dir, storageFile);
-        UserThread.execute(() -> log.trace("Save {} completed in {}msec", storageFile, System.currentTimeMillis() - now));
+        metrics.onWriteStarted();
+        boolean success = saveToFile(serializable, dir, storageFile);
+        long duration = System.currentTimeMillis() - now;
+        metrics.onWriteCompleted(duration, success);
+        if (!PersistenceService.isShutDown())
+            UserThread.execute(() -> log.trace("Save {} completed in {}msec", storageFile, duration));
+        return success;
     }
 
-    private synchronized void saveToFile(T serializable, File dir, File storageFile) {
+    private synchronized boolean saveToFile(T serializable, File dir, File storageFile) {
+        // We get a snapshot passed (see getSnapshot) so the UserThread cannot modify it while we write it.
+        return writeFile(dir, storageFile, outputStream -> {
+            ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream);
+            objectOutputStream.writeObject(serializable);
+            objectOutputStream.flush();
+        });
+    }
+
+    interface FileWriter {
+        void write(OutputStream outputStream) throws IOException;
+    }
+
+    // Writes to a temp file and replaces the storage file with it, so we never leave a partly written file
+    static boolean writeFile(File dir, File storageFile, FileWriter fileWriter) {
         File tempFile = null;
         FileOutputStream fileOutputStream = null;
-        ObjectOutputStream objectOutputStream = null;
         try {
             if (!dir.exists())
-                if (!dir.mkdir())
+                if (!dir.mkdirs())
                     log.warn("make dir failed");
 
             tempFile = File.createTempFile("temp", null, dir);
@@ -236,10 +278,8 @@ public class FileManager<T> {
             // and we need to close it
             // manually before replacing file with temp file
             fileOutputStream = new FileOutputStream(tempFile);
-            objectOutputStream = new ObjectOutputStream(fileOutputStream);
+            fileWriter.write(fileOutputStream);
 
-            // TODO ConcurrentModificationException happens sometimes at that line
-            objectOutputStream.writeObject(serializable);
             // Attempt to force the bits to hit the disk. In reality the OS or hard disk itself may still decide
             // to not write through to physical media for at least a few seconds, but this is the best we can do.
             fileOutputStream.flush();
@@ -248,13 +288,14 @@ public class FileManager<T> {
             // Close resources before replacing file with temp file because otherwise it causes problems on windows
             // when rename temp file
             fileOutputStream.close();
-            objectOutputStream.close();
 
             renameTempFileToFile(tempFile, storageFile);
+            return true;
         } catch (Throwable t) {
             log.debug("storageFile " + storageFile.toString());
             t.printStackTrace();
             log.error("Error at saveToFile: " + t.getMessage());
+            return false;
         } finally {
             if (tempFile != null && tempFile.exists()) {
                 log.warn("Temp file still exists after failed save. storageFile=" + storageFile);
@@ -263,8 +304,6 @@ public class FileManager<T> {
             }
 
             try {
-                if (objectOutputStream != null)
-                    objectOutputStream.close();
                 if (fileOutputStream != null)
                     fileOutputStream.close();
             } catch (IOException e) {
@@ -275,7 +314,7 @@ public class FileManager<T> {
         }
     }
 
-    private synchronized void renameTempFileToFile(File tempFile, File file) throws IOException {
+    private static void renameTempFileToFile(File tempFile, File file) throws IOException {
         if (Utils.isWindows()) {
             // Work around an issue on Windows whereby you can't rename over existing files.
             final File canonical = file.getCanonicalFile();
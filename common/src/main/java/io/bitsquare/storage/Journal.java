@@ -0,0 +1,277 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.storage;
+
+import io.bitsquare.common.UserThread;
+import io.bitsquare.common.util.SerializationUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/**
+ * Append only journal for a persisted collection.
+ * <p>
+ * Instead of rewriting the whole collection at every change we append the changed entries (JournalEntry) to a
+ * journal file next to the snapshot file. Changes are collected and coalesced per key on the UserThread and written
+ * after a short delay on a background thread, so the written data is proportional to the change and not to the
+ * size of the collection. The changed entries are serialized on the UserThread, as their values (e.g. a trade) keep
+ * getting mutated there, and the serialized records are written on the background thread.
+ * <p>
+ * When the journal grows beyond MAX_JOURNAL_SIZE (or at a full save request) we write a new snapshot with the
+ * FileManager and truncate the journal. Appends and compaction run in order on the I/O thread of the
+ * PersistenceService, so entries added after the snapshot was taken are always appended after the truncation.
+ * <p>
+ * Each record is written as [length][crc32][serialized JournalEntry]. At startup the records are read until the
+ * first incomplete or corrupted record (e.g. after a crash during a write) and the damaged tail gets discarded.
+ */
+public class Journal<T extends Serializable> {
+    private static final Logger log = LoggerFactory.getLogger(Journal.class);
+
+    public static final String FILE_EXTENSION = ".journal";
+    // If the journal grows beyond that size we write a new snapshot and start with an empty journal
+    private static final long MAX_JOURNAL_SIZE = 1024 * 1024;
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private final File journalFile;
+    private final FileManager<T> fileManager;
+    private final T serializable;
+    private final long delay;
+    private final TimeUnit delayTimeUnit;
+    private final PersistenceService.FileMetrics metrics;
+
+    // Only accessed from the UserThread
+    private final LinkedHashMap<Serializable, JournalEntry> pendingEntries = new LinkedHashMap<>();
+    private boolean flushScheduled;
+    private boolean compactionScheduled;
+
+    // Only accessed from the I/O thread after the journal was read
+    private long journalSize;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public Journal(File dir, String fileName, FileManager<T> fileManager, T serializable, long delay,
+                   TimeUnit delayTimeUnit) {
+        this.journalFile = new File(dir, fileName + FILE_EXTENSION);
+        this.fileManager = fileManager;
+        this.serializable = serializable;
+        this.delay = delay;
+        this.delayTimeUnit = delayTimeUnit;
+
+        metrics = PersistenceService.getMetrics(journalFile.getName());
+
+        PersistenceService.register(this::flushPending);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Reads all valid entries of the journal. Called once at startup before any entry gets added.
+     */
+    public List<JournalEntry> read() {
+        List<JournalEntry> entries = new ArrayList<>();
+        if (journalFile.exists()) {
+            long fileLength = journalFile.length();
+            long validLength = 0;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)))) {
+                while (validLength + RECORD_HEADER_SIZE <= fileLength) {
+                    int length = in.readInt();
+                    int checksum = in.readInt();
+                    if (length < 0 || validLength + RECORD_HEADER_SIZE + length > fileLength)
+                        break;
+
+                    byte[] record = new byte[length];
+                    in.readFully(record);
+                    if (getChecksum(record) != checksum)
+                        break;
+
+                    Object entry = SerializationUtil.deserialize(record);
+                    if (!(entry instanceof JournalEntry))
+                        break;
+
+                    entries.add((JournalEntry) entry);
+                    validLength += RECORD_HEADER_SIZE + length;
+                }
+            } catch (IOException e) {
+                log.error("Reading journal " + journalFile + " failed. " + e.getMessage());
+            }
+
+            if (validLength < fileLength) {
+                log.warn("Journal {} has an incomplete or corrupted tail, probably from a crash during a write. " +
+                        "We discard the last {} bytes.", journalFile, fileLength - validLength);
+                truncate(validLength);
+            }
+            journalSize = validLength;
+        }
+        return entries;
+    }
+
+    /**
+     * Queues up a changed entry. Entries with the same key are coalesced until they get written.
+     */
+    public void add(JournalEntry entry) {
+        metrics.onRequest();
+        JournalEntry pending = pendingEntries.get(entry.key);
+        if (pending == null) {
+            pendingEntries.put(entry.key, entry);
+        } else if (pending.operation == JournalEntry.Operation.REMOVE && entry.operation == JournalEntry.Operation.ADD) {
+            // Re-added entries go to the end as in the collection
+            pendingEntries.remove(entry.key);
+            pendingEntries.put(entry.key, entry);
+        } else {
+            pendingEntries.put(entry.key, pending.merge(entry));
+        }
+
+        if (!flushScheduled) {
+            flushScheduled = true;
+            schedule(this::flush);
+        }
+    }
+
+    /**
+     * Queues up writing a full snapshot and truncating the journal.
+     */
+    public void compactLater() {
+        if (!compactionScheduled) {
+            compactionScheduled = true;
+            schedule(this::compact);
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Delay on the scheduler thread and then continue on the UserThread where the collection gets mutated
+    private void schedule(Runnable userThreadTask) {
+        try {
+            PersistenceService.schedule(() -> UserThread.execute(userThreadTask), delay, delayTimeUnit);
+        } catch (RejectedExecutionException e) {
+            // We are shutting down, pending entries get written by flushPending
+            log.debug("Journal write requested after shutdown. " + journalFile);
+        }
+    }
+
+    // Called by the PersistenceService at shutdown on the UserThread after the I/O thread has terminated. Delayed
+    // tasks are not executed after shutdown, so we write what is still pending on the calling thread.
+    private void flushPending() {
+        List<byte[]> records = takePendingRecords();
+        if (compactionScheduled) {
+            compactionScheduled = false;
+            writeSnapshot(FileManager.getSnapshot(serializable), records);
+        } else if (!records.isEmpty()) {
+            append(records);
+        }
+    }
+
+    // Runs on the UserThread
+    private void flush() {
+        flushScheduled = false;
+        if (!pendingEntries.isEmpty()) {
+            List<byte[]> records = takePendingRecords();
+            PersistenceService.execute(() -> append(records), fileManager.getPriority());
+        }
+    }
+
+    // Runs on the UserThread
+    private void compact() {
+        compactionScheduled = false;
+        // The pending entries are contained in the snapshot, we only need them if writing the snapshot fails
+        List<byte[]> records = takePendingRecords();
+        T snapshot = FileManager.getSnapshot(serializable);
+        PersistenceService.execute(() -> writeSnapshot(snapshot, records), fileManager.getPriority());
+    }
+
+    // Runs on the I/O thread
+    private void writeSnapshot(T snapshot, List<byte[]> records) {
+        if (fileManager.saveNow(snapshot)) {
+            truncate(0);
+        } else {
+            log.error("Writing snapshot failed. We keep the journal and append the pending entries. " + journalFile);
+            if (!records.isEmpty())
+                append(records);
+        }
+    }
+
+    // Runs on the UserThread. We serialize the entries here as their values get mutated on the UserThread.
+    // The entries are small (one changed element of the collection), so that is cheap.
+    private List<byte[]> takePendingRecords() {
+        List<byte[]> records = pendingEntries.values().stream()
+                .map(SerializationUtil::serialize)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        pendingEntries.clear();
+        return records;
+    }
+
+    // Runs on the I/O thread
+    private void append(List<byte[]> records) {
+        long now = System.currentTimeMillis();
+        metrics.onWriteStarted();
+        try (FileOutputStream fileOutputStream = new FileOutputStream(journalFile, true)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOutputStream));
+            for (byte[] record : records) {
+                out.writeInt(record.length);
+                out.writeInt(getChecksum(record));
+                out.write(record);
+                journalSize += RECORD_HEADER_SIZE + record.length;
+            }
+            out.flush();
+            fileOutputStream.getFD().sync();
+        } catch (IOException e) {
+            e.printStackTrace();
+            log.error("Appending to journal " + journalFile + " failed. We write a full snapshot instead. " +
+                    e.getMessage());
+            metrics.onWriteCompleted(System.currentTimeMillis() - now, false);
+            UserThread.execute(this::compactLater);
+            return;
+        }
+        metrics.onWriteCompleted(System.currentTimeMillis() - now, true);
+
+        if (journalSize > MAX_JOURNAL_SIZE)
+            UserThread.execute(this::compactLater);
+    }
+
+    private void truncate(long length) {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(journalFile, "rw")) {
+            randomAccessFile.setLength(length);
+            randomAccessFile.getFD().sync();
+            journalSize = length;
+        } catch (IOException e) {
+            e.printStackTrace();
+            log.error("Truncating journal " + journalFile + " failed. " + e.getMessage());
+        }
+    }
+
+    private static int getChecksum(byte[] record) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(record);
+        return (int) crc32.getValue();
+    }
+}
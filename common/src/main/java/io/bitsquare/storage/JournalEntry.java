@@ -0,0 +1,71 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.storage;
+
+import io.bitsquare.app.Version;
+
+import javax.annotation.Nullable;
+import java.io.Serializable;
+
+/**
+ * A change record of a single entry of a journaled collection (see Journal).
+ * Each entry carries the full state of the changed element, so replaying a journal is idempotent.
+ */
+public final class JournalEntry implements Serializable {
+    // That object is saved to disc. We need to take care of changes to not break deserialization.
+    private static final long serialVersionUID = Version.LOCAL_DB_VERSION;
+
+    public enum Operation {
+        // Add the value or replace the existing value with the same key
+        ADD,
+        // Replace the existing value with the same key, ignored if there is none
+        UPDATE,
+        REMOVE
+    }
+
+    public final Operation operation;
+    public final Serializable key;
+    @Nullable
+    public final Serializable value;
+
+    public JournalEntry(Operation operation, Serializable key, @Nullable Serializable value) {
+        this.operation = operation;
+        this.key = key;
+        this.value = value;
+    }
+
+    // Combines that (older) entry with a newer entry for the same key into one entry with the same effect
+    JournalEntry merge(JournalEntry newer) {
+        if (newer.operation == Operation.UPDATE) {
+            if (operation == Operation.REMOVE)
+                return this;
+            else
+                return new JournalEntry(operation, key, newer.value);
+        } else {
+            return newer;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "JournalEntry{" +
+                "operation=" + operation +
+                ", key=" + key +
+                '}';
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.storage;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.bitsquare.common.UserThread;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Owns the I/O thread used by all FileManager and Journal instances and the single shutdown hook which flushes
+ * all pending writes.
+ * <p>
+ * All writes run on one low priority thread, so writes of different files don't compete with each other or with the
+ * UserThread. Writes with a higher Priority (e.g. trades) are executed before queued writes with a lower priority
+ * (e.g. the bulk data of the P2P network). Writes with the same priority are executed in the order they got queued,
+ * so the Journal can rely on the ordering of appends and snapshots as long as a file always uses the same priority.
+ * Delayed tasks are only timers which hand over to the UserThread, they run on a separate scheduler thread.
+ * At shutdown we wait for the running writes and then flush the pending writes of all files in the order they have
+ * been registered. The flush runs on the UserThread, where the persisted objects get mutated.
+ * <p>
+ * For each file we keep some metrics about the queued and coalesced save requests and the save latency.
+ */
+public class PersistenceService {
+    private static final Logger log = LoggerFactory.getLogger(PersistenceService.class);
+
+    /**
+     * Implemented by the components which delay their writes. Called once at shutdown on the UserThread after the
+     * I/O thread has terminated.
+     */
+    interface Flushable {
+        void flushPending();
+    }
+
+    public enum Priority {
+        HIGH,
+        NORMAL,
+        LOW
+    }
+
+    private static final ThreadPoolExecutor executor;
+    private static final ScheduledThreadPoolExecutor scheduler;
+    // Keeps the order of tasks with the same priority
+    private static final AtomicLong taskSequenceNumber = new AtomicLong();
+    private static final List<Flushable> flushables = new CopyOnWriteArrayList<>();
+    private static final Map<String, FileMetrics> metricsMap = new ConcurrentHashMap<>();
+    private static final AtomicBoolean isShutDown = new AtomicBoolean();
+
+    static {
+        executor = new ThreadPoolExecutor(1, 1, 5, TimeUnit.SECONDS, new PriorityBlockingQueue<>(),
+                new ThreadFactoryBuilder()
+                        .setDaemon(true)
+                        .setNameFormat("Persistence-%d")
+                        .setPriority(Thread.MIN_PRIORITY)  // Avoid competing with the GUI thread.
+                        .build());
+        executor.allowCoreThreadTimeOut(true);
+
+        scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("Persistence-Scheduler-%d")
+                .build());
+        scheduler.setKeepAliveTime(5, TimeUnit.SECONDS);
+        scheduler.allowCoreThreadTimeOut(true);
+        scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(PersistenceService::shutDownFromHook,
+                "PersistenceService.ShutDownHook"));
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public static Map<String, FileMetrics> getMetrics() {
+        return Collections.unmodifiableMap(metricsMap);
+    }
+
+    /**
+     * Waits for the running writes and writes all pending data on the calling thread. Must be called on the
+     * UserThread, as the pending data is only accessed from there (e.g. before System.exit).
+     * If it was not called before, the shutdown hook hands it over to the UserThread.
+     */
+    public static void shutDown() {
+        if (isShutDown.getAndSet(true))
+            return;
+
+        scheduler.shutdown();
+        executor.shutdown();
+        boolean terminated = false;
+        try {
+            terminated = executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (terminated) {
+            // Delayed writes are not executed after shutdown, so we write them now
+            for (Flushable flushable : flushables) {
+                try {
+                    flushable.flushPending();
+                } catch (Throwable t) {
+                    t.printStackTrace();
+                    log.error("Flushing pending writes at shutdown failed. " + t.getMessage());
+                }
+            }
+        } else {
+            // Flushing now would write the same files as the still running write
+            log.error("The I/O thread did not terminate in time. We don't flush the pending writes.");
+        }
+
+        metricsMap.values().stream().forEach(metrics -> log.info(metrics.toString()));
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Package scope
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    static void register(Flushable flushable) {
+        flushables.add(flushable);
+    }
+
+    static FileMetrics getMetrics(String fileName) {
+        return metricsMap.computeIfAbsent(fileName, FileMetrics::new);
+    }
+
+    // If the UserThread does not respond (e.g. it is the thread which called System.exit) we give up after a
+    // timeout, the pending writes of the last moments are then lost.
+    private static void shutDownFromHook() {
+        if (isShutDown.get())
+            return;
+
+        CountDownLatch shutDownCompleted = new CountDownLatch(1);
+        try {
+            UserThread.execute(() -> {
+                try {
+                    shutDown();
+                } finally {
+                    shutDownCompleted.countDown();
+                }
+            });
+            if (!shutDownCompleted.await(10, TimeUnit.SECONDS))
+                log.error("Shut down on the UserThread did not complete in time. Pending writes might be lost.");
+        } catch (Throwable t) {
+            t.printStackTrace();
+            log.error("Shut down from the shutdown hook failed. " + t.getMessage());
+        }
+    }
+
+    static boolean isShutDown() {
+        return isShutDown.get();
+    }
+
+    /**
+     * Runs the task after the delay on the scheduler thread. The task must not do any I/O itself.
+     *
+     * @throws RejectedExecutionException if we are already shut down
+     */
+    static void schedule(Runnable task, long delay, TimeUnit timeUnit) {
+        scheduler.schedule(task, delay, timeUnit);
+    }
+
+    static void execute(Runnable task) {
+        execute(task, Priority.NORMAL);
+    }
+
+    /**
+     * Executes the task on the I/O thread or on the calling thread if we are already shut down.
+     */
+    static void execute(Runnable task, Priority priority) {
+        try {
+            executor.execute(new PrioritizedTask(task, priority, taskSequenceNumber.getAndIncrement()));
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // PrioritizedTask
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    static class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+        private final Runnable task;
+        private final Priority priority;
+        private final long sequenceNumber;
+
+        PrioritizedTask(Runnable task, Priority priority, long sequenceNumber) {
+            this.task = task;
+            this.priority = priority;
+            this.sequenceNumber = sequenceNumber;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            int result = priority.compareTo(other.priority);
+            return result != 0 ? result : Long.compare(sequenceNumber, other.sequenceNumber);
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // FileMetrics
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public static class FileMetrics {
+        public final String fileName;
+
+        // Requests since the last write started
+        private final AtomicLong queueDepth = new AtomicLong();
+        private final AtomicLong numRequests = new AtomicLong();
+        private final AtomicLong numCoalescedRequests = new AtomicLong();
+        private final AtomicLong numWrites = new AtomicLong();
+        private final AtomicLong numFailedWrites = new AtomicLong();
+        private final AtomicLong totalWriteTime = new AtomicLong();
+        private final AtomicLong maxWriteTime = new AtomicLong();
+
+        FileMetrics(String fileName) {
+            this.fileName = fileName;
+        }
+
+        void onRequest() {
+            numRequests.incrementAndGet();
+            queueDepth.incrementAndGet();
+        }
+
+        // Called when the data for the write is taken, all requests since the last write are covered by it
+        void onWriteStarted() {
+            long depth = queueDepth.getAndSet(0);
+            if (depth > 1)
+                numCoalescedRequests.addAndGet(depth - 1);
+        }
+
+        void onWriteCompleted(long duration, boolean success) {
+            numWrites.incrementAndGet();
+            if (!success)
+                numFailedWrites.incrementAndGet();
+            totalWriteTime.addAndGet(duration);
+            maxWriteTime.accumulateAndGet(duration, Math::max);
+        }
+
+        public long getQueueDepth() {
+            return queueDepth.get();
+        }
+
+        public long getNumRequests() {
+            return numRequests.get();
+        }
+
+        public long getNumCoalescedRequests() {
+            return numCoalescedRequests.get();
+        }
+
+        public long getNumWrites() {
+            return numWrites.get();
+        }
+
+        public long getNumFailedWrites() {
+            return numFailedWrites.get();
+        }
+
+        public long getAverageWriteTime() {
+            long writes = numWrites.get();
+            return writes > 0 ? totalWriteTime.get() / writes : 0;
+        }
+
+        public long getMaxWriteTime() {
+            return maxWriteTime.get();
+        }
+
+        @Override
+        public String toString() {
+            return "FileMetrics{" +
+                    "fileName='" + fileName + '\'' +
+                    ", queueDepth=" + getQueueDepth() +
+                    ", numRequests=" + getNumRequests() +
+                    ", numCoalescedRequests=" + getNumCoalescedRequests() +
+                    ", numWrites=" + getNumWrites() +
+                    ", numFailedWrites=" + getNumFailedWrites() +
+                    ", averageWriteTime=" + getAverageWriteTime() + "ms" +
+                    ", maxWriteTime=" + getMaxWriteTime() + "ms" +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.storage;
+
+import java.io.Serializable;
+
+/**
+ * Persisted objects which get mutated on the UserThread implement that interface so the FileManager can serialize
+ * a copy on its background thread instead of the live object.
+ * The snapshot is taken on the UserThread when the delayed save gets executed, so repeated calls to
+ * Storage.queueUpForSave are still coalesced into one copy and one write.
+ * A shallow copy of the collection is sufficient as long as the elements are not modified. Otherwise the collection
+ * has to copy the elements as well (e.g. DisputeList with the messages of a Dispute, TradableList serializes its
+ * trades).
+ */
+public interface Snapshotable<T extends Serializable> {
+
+    T getSnapshot();
+}
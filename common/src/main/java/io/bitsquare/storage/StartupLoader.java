@@ -0,0 +1,122 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.storage;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Reads all persisted files of a storage directory in parallel on background threads at startup.
+ * <p>
+ * The owners of the persisted data (TradeManager, OpenOfferManager, User,...) get created one after another by Guice
+ * and read their file in Storage.initAndGetPersisted. If the files have been preloaded, Storage only waits for the
+ * future of its file, so the startup is bounded by the slowest file and not by the sum of all files.
+ * Files which are not claimed by a Storage get read again the usual way after they got discarded.
+ */
+public class StartupLoader {
+    private static final Logger log = LoggerFactory.getLogger(StartupLoader.class);
+
+    private static final Map<File, ListenableFuture<Object>> futuresByFile = new ConcurrentHashMap<>();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Starts reading all persisted files in that directory. Must be called before the Storage instances get created.
+     */
+    public static void preload(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null)
+            return;
+
+        List<File> persistedFiles = Arrays.asList(files).stream()
+                .filter(StartupLoader::isPersistedFile)
+                .filter(file -> !futuresByFile.containsKey(file))
+                .collect(Collectors.toList());
+        if (persistedFiles.isEmpty())
+            return;
+
+        int numThreads = Math.min(persistedFiles.size(), Math.max(1, Runtime.getRuntime().availableProcessors()));
+        ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(numThreads,
+                new ThreadFactoryBuilder()
+                        .setDaemon(true)
+                        .setNameFormat("StartupLoader-%d")
+                        .build()));
+
+        // Larger files first, so the slowest reads start as early as possible
+        persistedFiles.sort((o1, o2) -> Long.compare(o2.length(), o1.length()));
+        persistedFiles.stream().forEach(file -> futuresByFile.put(file, executor.submit(() -> {
+            long now = System.currentTimeMillis();
+            Object persisted = FileManager.readFile(file);
+            log.trace("Preload {} completed in {}msec", file, System.currentTimeMillis() - now);
+            return persisted;
+        })));
+        // Threads terminate once all files are read
+        executor.shutdown();
+    }
+
+    /**
+     * Releases the preloaded data which have not been claimed (e.g. files of a removed feature).
+     */
+    public static void discardUnclaimed() {
+        if (!futuresByFile.isEmpty()) {
+            log.debug("Discard unclaimed preloaded files: " + futuresByFile.keySet());
+            futuresByFile.clear();
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Package scope
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @return The future of the preloaded file or null if that file was not preloaded. The future is handed over only
+     * once, later calls get null.
+     */
+    @Nullable
+    static ListenableFuture<Object> claim(File file) {
+        return futuresByFile.remove(file);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Skip directories (backup, corrupted), journals and temp files from an interrupted save
+    private static boolean isPersistedFile(File file) {
+        String name = file.getName();
+        return file.isFile() && !name.endsWith(Journal.FILE_EXTENSION) && !name.endsWith(".tmp") && !name.startsWith(".");
+    }
+}
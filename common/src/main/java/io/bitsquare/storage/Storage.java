@@ -18,6 +18,8 @@
 package io.bitsquare.storage;
 
 import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,6 +29,8 @@ import javax.inject.Named;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -43,10 +47,16 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * <p>
  * We also backup at first read the file, so we have a valid file form the latest version in case a write operation corrupted the file.
  * <p>
- * The read operation is triggered just at object creation (startup) and is at the moment not executed on a background thread to avoid asynchronous behaviour.
- * As the data are small and it is just one read access the performance penalty is small and might be even worse to create and setup a thread for it.
+ * The read operation is triggered just at object creation (startup). If the StartupLoader has preloaded the files of the
+ * storage directory in parallel we only wait for the result, otherwise the file is read on the calling thread.
  * <p>
- * The write operation used a background thread and supports a delayed write to avoid too many repeated write operations.
+ * The write operation uses the shared I/O thread of the PersistenceService and supports a delayed write to avoid too many
+ * repeated write operations. Pending writes are flushed at shutdown.
+ * Objects implementing Snapshotable (and plain HashMaps/ArrayLists) are copied on the UserThread before the write,
+ * so the background thread never serializes an object which gets modified at the same time.
+ * <p>
+ * Large collections with frequent small changes can use a Journal (see initAndGetPersistedWithJournal). Then only the
+ * changed entries are appended to a journal file and the full object is only written when the journal gets compacted.
  */
 public class Storage<T extends Serializable> {
     private static final Logger log = LoggerFactory.getLogger(Storage.class);
@@ -67,6 +77,9 @@ public class Storage<T extends Serializable> {
     private File storageFile;
     private T serializable;
     private String fileName;
+    @Nullable
+    private Journal<T> journal;
+    private PersistenceService.Priority priority = PersistenceService.Priority.NORMAL;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -78,11 +91,20 @@ public class Storage<T extends Serializable> {
         this.dir = dir;
     }
 
+    /**
+     * Writes with a higher priority are executed before queued writes with a lower priority (see PersistenceService).
+     * Must be called before the init methods.
+     */
+    public void setPriority(PersistenceService.Priority priority) {
+        this.priority = priority;
+    }
+
     @Nullable
     public T initAndGetPersisted(String fileName) {
         this.fileName = fileName;
         storageFile = new File(dir, fileName);
         fileManager = new FileManager<>(dir, storageFile, 600, TimeUnit.MILLISECONDS);
+        fileManager.setPriority(priority);
 
         return getPersisted();
     }
@@ -98,12 +120,50 @@ public class Storage<T extends Serializable> {
         this.fileName = fileName;
         storageFile = new File(dir, fileName);
         fileManager = new FileManager<>(dir, storageFile, 600, TimeUnit.MILLISECONDS);
+        fileManager.setPriority(priority);
 
         return getPersisted();
     }
 
+    /**
+     * Like initAndGetPersisted but changes are written to a journal. The journal entries of the last session are
+     * applied to the persisted object, or to the passed serializable if there is no persisted object.
+     * The serializable has to implement Journalable or be a Map.
+     */
+    @Nullable
+    public T initAndGetPersistedWithJournal(T serializable, String fileName) {
+        T persisted = initAndGetPersisted(serializable, fileName);
+        journal = new Journal<>(dir, fileName, fileManager, serializable, 600, TimeUnit.MILLISECONDS);
+
+        List<JournalEntry> journalEntries = journal.read();
+        if (!journalEntries.isEmpty()) {
+            long now = System.currentTimeMillis();
+            T target = persisted != null ? persisted : serializable;
+            journalEntries.stream().forEach(entry -> applyJournalEntry(target, entry));
+            log.trace("Applied {} journal entries to {} in {}msec", journalEntries.size(), fileName,
+                    System.currentTimeMillis() - now);
+        }
+        return persisted;
+    }
+
     public void queueUpForSave() {
-        queueUpForSave(serializable);
+        if (journal != null)
+            journal.compactLater();
+        else
+            queueUpForSave(serializable);
+    }
+
+    // If a journal is used only the changed entry gets written, otherwise we fall back to saving the whole object
+    public void queueUpAddedEntry(Serializable key, Serializable value) {
+        queueUpJournalEntry(new JournalEntry(JournalEntry.Operation.ADD, key, value));
+    }
+
+    public void queueUpChangedEntry(Serializable key, Serializable value) {
+        queueUpJournalEntry(new JournalEntry(JournalEntry.Operation.UPDATE, key, value));
+    }
+
+    public void queueUpRemovedEntry(Serializable key) {
+        queueUpJournalEntry(new JournalEntry(JournalEntry.Operation.REMOVE, key, null));
     }
 
     // Save delayed and on a background thread
@@ -118,8 +178,9 @@ public class Storage<T extends Serializable> {
         }
     }
 
+    // Done on the I/O thread after the pending writes and backups
     public void remove(String fileName) {
-        fileManager.removeFile(fileName);
+        PersistenceService.execute(() -> fileManager.removeFile(fileName), priority);
     }
 
 
@@ -127,23 +188,65 @@ public class Storage<T extends Serializable> {
     // Private
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    // We do the file read on the UI thread to avoid problems from multi threading. 
-    // Data are small and read is done only at startup, so it is no performance issue.
+    private void queueUpJournalEntry(JournalEntry journalEntry) {
+        if (journal != null)
+            journal.add(journalEntry);
+        else
+            queueUpForSave();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void applyJournalEntry(T target, JournalEntry journalEntry) {
+        if (target instanceof Journalable) {
+            ((Journalable) target).applyJournalEntry(journalEntry);
+        } else if (target instanceof Map) {
+            Map<Serializable, Serializable> map = (Map<Serializable, Serializable>) target;
+            switch (journalEntry.operation) {
+                case ADD:
+                    map.put(journalEntry.key, journalEntry.value);
+                    break;
+                case UPDATE:
+                    if (map.containsKey(journalEntry.key))
+                        map.put(journalEntry.key, journalEntry.value);
+                    break;
+                case REMOVE:
+                    map.remove(journalEntry.key);
+                    break;
+            }
+        } else {
+            log.error("Journal entries can only be applied to Journalable objects or maps. fileName=" + fileName);
+        }
+    }
+
+    // If the file was preloaded by the StartupLoader we only wait for its result, otherwise we read it on the calling
+    // thread. Data are small and read is done only at startup, so it is no performance issue.
+    @SuppressWarnings("unchecked")
     @Nullable
     private T getPersisted() {
-        if (storageFile.exists()) {
+        ListenableFuture<Object> preloaded = StartupLoader.claim(storageFile);
+        if (preloaded != null || storageFile.exists()) {
             long now = System.currentTimeMillis();
             try {
-                T persistedObject = fileManager.read(storageFile);
+                T persistedObject = preloaded != null ? (T) Futures.getUnchecked(preloaded) : fileManager.read(storageFile);
                 log.trace("Read {} completed in {}msec", storageFile, System.currentTimeMillis() - now);
 
-                // If we did not get any exception we can be sure the data are consistent so we make a backup 
-                now = System.currentTimeMillis();
-                fileManager.backupFile(fileName);
-                log.trace("Backup {} completed in {}msec", storageFile, System.currentTimeMillis() - now);
+                // If we did not get any exception we can be sure the data are consistent so we make a backup.
+                // The backup is done on the I/O thread before any later write of that file.
+                if (persistedObject != null) {
+                    PersistenceService.execute(() -> {
+                        try {
+                            long ts = System.currentTimeMillis();
+                            fileManager.backupFile(fileName);
+                            log.trace("Backup {} completed in {}msec", storageFile, System.currentTimeMillis() - ts);
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                            log.error("Backup of " + storageFile + " failed. " + e.getMessage());
+                        }
+                    }, priority);
+                }
 
                 return persistedObject;
-            } catch (ClassCastException | IOException e) {
+            } catch (ClassCastException e) {
                 e.printStackTrace();
                 log.error("Version of persisted class has changed. We cannot read the persisted data anymore. We make a backup and remove the inconsistent " +
                         "file.");
@@ -0,0 +1,85 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.common.crypto;
+
+import io.bitsquare.common.util.SerializationUtil;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.Before;
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import java.io.Serializable;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+// Hashes of serialized objects are signed and used as keys in the P2P network, so they must not change
+public class HashTest {
+
+    private static class Payload implements Serializable {
+        private static final long serialVersionUID = 1;
+
+        private final String id;
+        private final long amount;
+        private final List<String> entries;
+        private final byte[] blob;
+
+        Payload(int numEntries, int blobSize) {
+            Random random = new Random(1);
+            id = "payload-" + random.nextInt();
+            amount = random.nextLong();
+            entries = new ArrayList<>();
+            for (int i = 0; i < numEntries; i++)
+                entries.add("entry-" + i + "-" + random.nextInt());
+            blob = new byte[blobSize];
+            random.nextBytes(blob);
+        }
+    }
+
+    @Before
+    public void setup() {
+        Security.addProvider(new BouncyCastleProvider());
+    }
+
+    @Test
+    public void testHashOfBytes() {
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                Hex.toHexString(Hash.getHash("abc".getBytes())));
+    }
+
+    @Test
+    public void testHashOfSerializable() {
+        // SHA-256 of the Java serialisation of the string "test"
+        assertEquals("dc54e494980da7869bf74ad0608fda677cfce6ef9bfebe180932982151b53a18",
+                Hex.toHexString(Hash.getHash((Serializable) "test")));
+    }
+
+    @Test
+    public void testStreamedHashEqualsHashOfSerializedBytes() {
+        for (int blobSize : new int[]{0, 1_000, 100_000}) {
+            Payload payload = new Payload(100, blobSize);
+            byte[] expected = Hash.getHash(SerializationUtil.serialize(payload));
+            assertArrayEquals(expected, Hash.getHash(payload));
+            assertArrayEquals(expected, Hash.getHash(new Payload(100, blobSize)));
+        }
+    }
+}
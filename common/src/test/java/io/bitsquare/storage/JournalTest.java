@@ -0,0 +1,175 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.storage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JournalTest {
+    private static final long DELAY = 10;
+
+    private File dir;
+    private HashMap<String, String> map;
+    private Journal<HashMap<String, String>> journal;
+
+    @Before
+    public void setup() throws IOException {
+        dir = File.createTempFile("temp_tests", "");
+        dir.delete();
+        dir.mkdir();
+
+        map = new HashMap<>();
+        journal = createJournal();
+        journal.read();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void testAdd() throws InterruptedException {
+        journal.add(new JournalEntry(JournalEntry.Operation.ADD, "a", "1"));
+        journal.add(new JournalEntry(JournalEntry.Operation.ADD, "b", "1"));
+        waitForWrites(DELAY);
+        journal.add(new JournalEntry(JournalEntry.Operation.REMOVE, "a", null));
+        journal.add(new JournalEntry(JournalEntry.Operation.UPDATE, "b", "2"));
+        waitForWrites(DELAY);
+
+        List<JournalEntry> entries = createJournal().read();
+        assertEquals(4, entries.size());
+        assertEquals(JournalEntry.Operation.REMOVE, entries.get(2).operation);
+        assertEquals("2", entries.get(3).value);
+    }
+
+    @Test
+    public void testCoalescing() throws InterruptedException {
+        // Changes of the same key before the write are coalesced into one entry
+        journal.add(new JournalEntry(JournalEntry.Operation.ADD, "a", "1"));
+        journal.add(new JournalEntry(JournalEntry.Operation.UPDATE, "a", "2"));
+        journal.add(new JournalEntry(JournalEntry.Operation.ADD, "b", "1"));
+        journal.add(new JournalEntry(JournalEntry.Operation.REMOVE, "b", null));
+        journal.add(new JournalEntry(JournalEntry.Operation.REMOVE, "c", null));
+        journal.add(new JournalEntry(JournalEntry.Operation.UPDATE, "c", "1"));
+        waitForWrites(DELAY);
+
+        List<JournalEntry> entries = createJournal().read();
+        assertEquals(3, entries.size());
+        assertEquals(JournalEntry.Operation.ADD, entries.get(0).operation);
+        assertEquals("2", entries.get(0).value);
+        assertEquals(JournalEntry.Operation.REMOVE, entries.get(1).operation);
+        // An update of a removed entry stays a remove
+        assertEquals(JournalEntry.Operation.REMOVE, entries.get(2).operation);
+    }
+
+    @Test
+    public void testTruncateTornTail() throws IOException, InterruptedException {
+        journal.add(new JournalEntry(JournalEntry.Operation.ADD, "a", "1"));
+        journal.add(new JournalEntry(JournalEntry.Operation.ADD, "b", "1"));
+        waitForWrites(DELAY);
+        File journalFile = new File(dir, "map" + Journal.FILE_EXTENSION);
+        long validLength = journalFile.length();
+
+        // A record which was only partly written at a crash
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(journalFile, true))) {
+            out.writeInt(100);
+            out.writeInt(0);
+            out.write(new byte[10]);
+        }
+        assertEquals(2, createJournal().read().size());
+        assertEquals(validLength, journalFile.length());
+
+        // A corrupted last record gets discarded as well
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(journalFile, "rw")) {
+            randomAccessFile.seek(validLength - 1);
+            int lastByte = randomAccessFile.read();
+            randomAccessFile.seek(validLength - 1);
+            randomAccessFile.write(lastByte ^ 0xFF);
+        }
+        List<JournalEntry> entries = createJournal().read();
+        assertEquals(1, entries.size());
+        assertEquals("a", entries.get(0).key);
+        assertTrue(journalFile.length() < validLength);
+    }
+
+    @Test
+    public void testReplayOnSnapshot() throws InterruptedException {
+        Storage<HashMap<String, String>> storage = new Storage<>(dir);
+        HashMap<String, String> map = new HashMap<>();
+        storage.initAndGetPersistedWithJournal(map, "storage");
+        map.put("a", "1");
+        storage.queueUpAddedEntry("a", "1");
+        waitForWrites(1000);
+
+        // The compaction writes the snapshot and truncates the journal
+        map.put("b", "1");
+        storage.queueUpForSave();
+        waitForWrites(1000);
+        File journalFile = new File(dir, "storage" + Journal.FILE_EXTENSION);
+        assertEquals(0, journalFile.length());
+
+        map.put("c", "1");
+        storage.queueUpAddedEntry("c", "1");
+        map.remove("a");
+        storage.queueUpRemovedEntry("a");
+        waitForWrites(1000);
+        assertTrue(journalFile.length() > 0);
+
+        // After a crash the journal gets replayed on top of the snapshot
+        HashMap<String, String> persisted = new Storage<HashMap<String, String>>(dir)
+                .initAndGetPersistedWithJournal(new HashMap<>(), "storage");
+        assertEquals(map, persisted);
+        // The backup of the read file
+        waitForWrites(0);
+    }
+
+    private Journal<HashMap<String, String>> createJournal() {
+        FileManager<HashMap<String, String>> fileManager = new FileManager<>(dir, new File(dir, "map"), DELAY,
+                TimeUnit.MILLISECONDS);
+        return new Journal<>(dir, "map", fileManager, map, DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    // Waits until the delayed writes are handed over to the I/O thread and executed
+    private static void waitForWrites(long delay) throws InterruptedException {
+        Thread.sleep(delay + 200);
+        CountDownLatch written = new CountDownLatch(1);
+        PersistenceService.execute(written::countDown, PersistenceService.Priority.LOW);
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+    }
+}
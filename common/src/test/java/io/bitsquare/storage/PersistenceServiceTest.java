@@ -0,0 +1,74 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.storage;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PersistenceServiceTest {
+
+    @Test
+    public void testPriorityOrdering() throws InterruptedException {
+        List<String> executed = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch completed = new CountDownLatch(5);
+
+        // Block the I/O thread until all tasks are queued
+        PersistenceService.execute(() -> {
+            started.countDown();
+            try {
+                blocked.await();
+            } catch (InterruptedException ignore) {
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        PersistenceService.execute(() -> record(executed, completed, "low1"), PersistenceService.Priority.LOW);
+        PersistenceService.execute(() -> record(executed, completed, "normal"));
+        PersistenceService.execute(() -> record(executed, completed, "high1"), PersistenceService.Priority.HIGH);
+        PersistenceService.execute(() -> record(executed, completed, "low2"), PersistenceService.Priority.LOW);
+        PersistenceService.execute(() -> record(executed, completed, "high2"), PersistenceService.Priority.HIGH);
+        blocked.countDown();
+
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        // Tasks with the same priority keep their order
+        assertEquals(Arrays.asList("high1", "high2", "normal", "low1", "low2"), executed);
+    }
+
+    @Test
+    public void testSchedule() throws InterruptedException {
+        CountDownLatch executed = new CountDownLatch(1);
+        PersistenceService.schedule(executed::countDown, 10, TimeUnit.MILLISECONDS);
+        assertTrue(executed.await(5, TimeUnit.SECONDS));
+    }
+
+    private static void record(List<String> executed, CountDownLatch completed, String name) {
+        executed.add(name);
+        completed.countDown();
+    }
+}
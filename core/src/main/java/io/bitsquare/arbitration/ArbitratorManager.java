@@ -140,7 +140,7 @@ public class ArbitratorManager {
             arbitratorService.getP2PService().removeP2PServiceListener(p2PNetworkReadyListener);
 
         Arbitrator registeredArbitrator = user.getRegisteredArbitrator();
-        if (registeredArbitrator != null) {
+        if (registeredArbitrator != null && !arbitratorService.refreshArbitratorTTL(registeredArbitrator)) {
             addArbitrator(registeredArbitrator,
                     () -> applyArbitrators(),
                     log::error
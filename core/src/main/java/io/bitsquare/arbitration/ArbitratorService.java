@@ -67,6 +67,13 @@ public class ArbitratorService {
         }
     }
 
+    /**
+     * @return False if the arbitrator is not in our data map and needs to be added again.
+     */
+    public boolean refreshArbitratorTTL(Arbitrator arbitrator) {
+        return p2PService.refreshTTL(arbitrator);
+    }
+
     public void removeArbitrator(Arbitrator arbitrator, ResultHandler resultHandler, ErrorMessageHandler errorMessageHandler) {
         log.debug("removeArbitrator arbitrator.hashCode() " + arbitrator.hashCode());
         if (p2PService.removeData(arbitrator)) {
@@ -20,6 +20,7 @@ package io.bitsquare.arbitration;
 import io.bitsquare.app.Version;
 import io.bitsquare.arbitration.messages.DisputeMailMessage;
 import io.bitsquare.common.crypto.PubKeyRing;
+import io.bitsquare.storage.Snapshotable;
 import io.bitsquare.storage.Storage;
 import io.bitsquare.trade.Contract;
 import javafx.beans.property.*;
@@ -37,7 +38,7 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
-public class Dispute implements Serializable {
+public class Dispute implements Serializable, Snapshotable<Dispute> {
     // That object is sent over the wire, so we need to take care of version compatibility.
     private static final long serialVersionUID = Version.NETWORK_PROTOCOL_VERSION;
     transient private static final Logger log = LoggerFactory.getLogger(Dispute.class);
@@ -123,6 +124,32 @@ public class Dispute implements Serializable {
         this.openingDate = new Date().getTime();
     }
 
+    // Used for the snapshot which gets persisted. The messages get added on the UserThread while the snapshot gets
+    // serialized on a background thread, so we copy the list.
+    private Dispute(Dispute dispute) {
+        this.tradeId = dispute.tradeId;
+        this.traderId = dispute.traderId;
+        this.disputeOpenerIsBuyer = dispute.disputeOpenerIsBuyer;
+        this.disputeOpenerIsOfferer = dispute.disputeOpenerIsOfferer;
+        this.openingDate = dispute.openingDate;
+        this.traderPubKeyRing = dispute.traderPubKeyRing;
+        this.tradeDate = dispute.tradeDate;
+        this.contract = dispute.contract;
+        this.contractHash = dispute.contractHash;
+        this.depositTxSerialized = dispute.depositTxSerialized;
+        this.payoutTxSerialized = dispute.payoutTxSerialized;
+        this.depositTxId = dispute.depositTxId;
+        this.payoutTxId = dispute.payoutTxId;
+        this.contractAsJson = dispute.contractAsJson;
+        this.offererContractSignature = dispute.offererContractSignature;
+        this.takerContractSignature = dispute.takerContractSignature;
+        this.arbitratorPubKeyRing = dispute.arbitratorPubKeyRing;
+        this.isSupportTicket = dispute.isSupportTicket;
+        this.disputeMailMessages.addAll(dispute.disputeMailMessages);
+        this.isClosed = dispute.isClosed;
+        this.disputeResult = dispute.disputeResult;
+    }
+
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
         try {
             in.defaultReadObject();
@@ -138,13 +165,19 @@ public class Dispute implements Serializable {
         if (!disputeMailMessages.contains(disputeMailMessage)) {
             disputeMailMessages.add(disputeMailMessage);
             disputeMailMessagesAsObservableList.add(disputeMailMessage);
-            storage.queueUpForSave();
+            storage.queueUpChangedEntry(getId(), this);
         } else {
             log.error("disputeMailMessage already exists");
         }
     }
 
 
+    @Override
+    public Dispute getSnapshot() {
+        return new Dispute(this);
+    }
+
+
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Setters
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -157,19 +190,24 @@ public class Dispute implements Serializable {
     public void setIsClosed(boolean isClosed) {
         this.isClosed = isClosed;
         isClosedProperty.set(isClosed);
-        storage.queueUpForSave();
+        storage.queueUpChangedEntry(getId(), this);
     }
 
     public void setDisputeResult(DisputeResult disputeResult) {
         this.disputeResult = disputeResult;
         disputeResultProperty.set(disputeResult);
-        storage.queueUpForSave();
+        storage.queueUpChangedEntry(getId(), this);
     }
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Getters
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    // Unique per dispute as both traders of a trade can open a dispute
+    public String getId() {
+        return tradeId + "_" + traderId;
+    }
+
     public String getTradeId() {
         return tradeId;
     }
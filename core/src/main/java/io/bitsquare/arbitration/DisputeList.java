@@ -18,6 +18,10 @@
 package io.bitsquare.arbitration;
 
 import io.bitsquare.app.Version;
+import io.bitsquare.storage.JournalEntry;
+import io.bitsquare.storage.Journalable;
+import io.bitsquare.storage.PersistenceService;
+import io.bitsquare.storage.Snapshotable;
 import io.bitsquare.storage.Storage;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -28,9 +32,10 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.util.*;
 
-public class DisputeList<DisputeCase> extends ArrayList<DisputeCase> implements Serializable {
+public class DisputeList<DisputeCase extends Dispute> extends ArrayList<DisputeCase> implements Serializable,
+        Snapshotable<DisputeList<DisputeCase>>, Journalable {
     // That object is saved to disc. We need to take care of changes to not break deserialization.
     private static final long serialVersionUID = Version.LOCAL_DB_VERSION;
 
@@ -38,15 +43,30 @@ public class DisputeList<DisputeCase> extends ArrayList<DisputeCase> implements
 
     final transient private Storage<DisputeList<DisputeCase>> storage;
     transient private ObservableList<DisputeCase> observableList;
+    // Index for routing of inbound messages by trade ID. Use getIndex() as the object might be in deserialized form.
+    transient private Map<String, List<DisputeCase>> disputesByTradeId;
 
     public DisputeList(Storage<DisputeList<DisputeCase>> storage) {
         this.storage = storage;
 
-        DisputeList persisted = storage.initAndGetPersisted(this);
+        // Disputes are written before queued writes of less important data
+        storage.setPriority(PersistenceService.Priority.HIGH);
+        DisputeList persisted = storage.initAndGetPersistedWithJournal(this, "DisputeList");
         if (persisted != null) {
             this.addAll(persisted);
         }
         observableList = FXCollections.observableArrayList(this);
+        disputesByTradeId = null;
+    }
+
+    // Used for the snapshot which gets persisted. The disputes are copied as well as their messages get added on
+    // the UserThread.
+    @SuppressWarnings("unchecked")
+    private DisputeList(DisputeList<DisputeCase> disputeList) {
+        super(disputeList.size());
+        this.storage = null;
+        for (DisputeCase disputeCase : disputeList)
+            super.add((DisputeCase) disputeCase.getSnapshot());
     }
 
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
@@ -59,10 +79,12 @@ public class DisputeList<DisputeCase> extends ArrayList<DisputeCase> implements
 
     @Override
     public boolean add(DisputeCase disputeCase) {
-        if (!super.contains(disputeCase)) {
+        // Equal disputes have the same trade ID, so we only need to look up the disputes of that trade
+        if (!getDisputesByTradeId(disputeCase.getTradeId()).contains(disputeCase)) {
             boolean result = super.add(disputeCase);
             getObservableList().add(disputeCase);
-            storage.queueUpForSave();
+            addToIndex(disputeCase);
+            storage.queueUpAddedEntry(disputeCase.getId(), disputeCase);
             return result;
         } else {
             return false;
@@ -73,16 +95,83 @@ public class DisputeList<DisputeCase> extends ArrayList<DisputeCase> implements
     public boolean remove(Object disputeCase) {
         boolean result = super.remove(disputeCase);
         getObservableList().remove(disputeCase);
-        storage.queueUpForSave();
+        if (result) {
+            Dispute dispute = (Dispute) disputeCase;
+            List<DisputeCase> disputes = getIndex().get(dispute.getTradeId());
+            if (disputes != null) {
+                disputes.remove(disputeCase);
+                if (disputes.isEmpty())
+                    getIndex().remove(dispute.getTradeId());
+            }
+            storage.queueUpRemovedEntry(dispute.getId());
+        }
         return result;
     }
 
+    // Called at startup for the journal entries of the last session, before the observableList is created
+    @SuppressWarnings("unchecked")
+    @Override
+    public void applyJournalEntry(JournalEntry journalEntry) {
+        int index = indexOf(journalEntry.key);
+        switch (journalEntry.operation) {
+            case ADD:
+                if (index >= 0)
+                    super.set(index, (DisputeCase) journalEntry.value);
+                else
+                    super.add((DisputeCase) journalEntry.value);
+                break;
+            case UPDATE:
+                if (index >= 0)
+                    super.set(index, (DisputeCase) journalEntry.value);
+                break;
+            case REMOVE:
+                if (index >= 0)
+                    super.remove(index);
+                break;
+        }
+        // gets rebuilt from the list at the next access
+        disputesByTradeId = null;
+    }
+
+    @Override
+    public DisputeList<DisputeCase> getSnapshot() {
+        return new DisputeList<>(this);
+    }
+
+    private int indexOf(Serializable id) {
+        for (int i = 0; i < size(); i++) {
+            if (get(i).getId().equals(id))
+                return i;
+        }
+        return -1;
+    }
+
     private ObservableList<DisputeCase> getObservableList() {
         if (observableList == null)
             observableList = FXCollections.observableArrayList(this);
         return observableList;
     }
 
+    /**
+     * @return The disputes of that trade in the order they have been added (trader and arbitrator might have one each).
+     */
+    public List<DisputeCase> getDisputesByTradeId(String tradeId) {
+        List<DisputeCase> disputes = getIndex().get(tradeId);
+        return disputes != null ? Collections.unmodifiableList(disputes) : Collections.emptyList();
+    }
+
+    private Map<String, List<DisputeCase>> getIndex() {
+        if (disputesByTradeId == null) {
+            disputesByTradeId = new HashMap<>();
+            this.stream().forEach(this::addToIndex);
+        }
+        return disputesByTradeId;
+    }
+
+    private void addToIndex(DisputeCase disputeCase) {
+        getIndex().computeIfAbsent(disputeCase.getTradeId(), k -> new ArrayList<>(2)).add(disputeCase);
+    }
+
     @NotNull
     @Override
     public String toString() {
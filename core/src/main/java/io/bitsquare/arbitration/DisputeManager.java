@@ -52,7 +52,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.stream.Collectors;
 
 public class DisputeManager {
     private static final Logger log = LoggerFactory.getLogger(DisputeManager.class);
@@ -579,15 +578,15 @@ public class DisputeManager {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     private Optional<Dispute> findDispute(String tradeId, int traderId) {
-        return disputes.stream().filter(e -> e.getTradeId().equals(tradeId) && e.getTraderId() == traderId).findFirst();
+        return disputes.getDisputesByTradeId(tradeId).stream().filter(e -> e.getTraderId() == traderId).findFirst();
     }
 
     public Optional<Dispute> findOwnDispute(String tradeId) {
-        return disputes.stream().filter(e -> e.getTradeId().equals(tradeId)).findFirst();
+        return disputes.getDisputesByTradeId(tradeId).stream().findFirst();
     }
 
     public List<Dispute> findDisputesByTradeId(String tradeId) {
-        return disputes.stream().filter(e -> e.getTradeId().equals(tradeId)).collect(Collectors.toList());
+        return new ArrayList<>(disputes.getDisputesByTradeId(tradeId));
     }
 
 }
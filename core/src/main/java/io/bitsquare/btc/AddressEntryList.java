@@ -19,6 +19,7 @@ package io.bitsquare.btc;
 
 import com.google.inject.Inject;
 import io.bitsquare.app.Version;
+import io.bitsquare.storage.Snapshotable;
 import io.bitsquare.storage.Storage;
 import org.bitcoinj.core.Wallet;
 import org.bitcoinj.crypto.DeterministicKey;
@@ -31,7 +32,7 @@ import java.util.ArrayList;
 /**
  * The List supporting our persistence solution.
  */
-public class AddressEntryList extends ArrayList<AddressEntry> implements Serializable {
+public class AddressEntryList extends ArrayList<AddressEntry> implements Serializable, Snapshotable<AddressEntryList> {
     // That object is saved to disc. We need to take care of changes to not break deserialization.
     private static final long serialVersionUID = Version.LOCAL_DB_VERSION;
     transient private static final Logger log = LoggerFactory.getLogger(AddressEntryList.class);
@@ -46,6 +47,12 @@ public class AddressEntryList extends ArrayList<AddressEntry> implements Seriali
         this.storage = storage;
     }
 
+    // Used for the snapshot which gets persisted
+    private AddressEntryList(AddressEntryList addressEntryList) {
+        super(addressEntryList);
+        this.storage = null;
+    }
+
     public void onWalletReady(Wallet wallet) {
         this.wallet = wallet;
 
@@ -75,6 +82,11 @@ public class AddressEntryList extends ArrayList<AddressEntry> implements Seriali
     }
 
 
+    @Override
+    public AddressEntryList getSnapshot() {
+        return new AddressEntryList(this);
+    }
+
     public AddressEntry getArbitratorAddressEntry() {
         if (size() > 0)
             return get(0);
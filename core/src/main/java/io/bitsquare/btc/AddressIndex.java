@@ -0,0 +1,134 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.btc;
+
+import org.bitcoinj.core.*;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * Index of the wallet transactions by the addresses of their outputs and connected outputs, and of the balance of
+ * the spendable outputs by address. It is updated from the wallet events, so address based lookups don't need to
+ * walk all wallet transactions. The balances are calculated in one pass for all addresses after a wallet change.
+ * <p>
+ * Built on the wallet thread at setup and updated on the UserThread, so access is synchronized.
+ */
+class AddressIndex {
+    private final NetworkParameters params;
+
+    private final Map<Address, Set<Transaction>> transactionsByAddress = new HashMap<>();
+    private final Map<Sha256Hash, Set<Address>> addressesByTxHash = new HashMap<>();
+    // null if not calculated since the last wallet change
+    @Nullable
+    private Map<Address, Coin> balanceByAddress;
+
+    AddressIndex(NetworkParameters params) {
+        this.params = params;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Update
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    synchronized void rebuild(Wallet wallet) {
+        transactionsByAddress.clear();
+        addressesByTxHash.clear();
+        wallet.getTransactions(true).stream().forEach(this::update);
+        balanceByAddress = null;
+    }
+
+    // Inputs might get connected after the transaction was added, so we index it again at each event
+    synchronized Set<Address> update(Transaction tx) {
+        Set<Address> previousAddresses = addressesByTxHash.remove(tx.getHash());
+        if (previousAddresses != null) {
+            previousAddresses.stream().forEach(address -> {
+                Set<Transaction> transactions = transactionsByAddress.get(address);
+                transactions.remove(tx);
+                if (transactions.isEmpty())
+                    transactionsByAddress.remove(address);
+            });
+        }
+
+        Set<Address> addresses = new HashSet<>();
+        for (TransactionOutput transactionOutput : tx.getOutputs())
+            addAddress(transactionOutput, addresses);
+
+        for (TransactionInput transactionInput : tx.getInputs()) {
+            TransactionOutput connectedOutput = transactionInput.getConnectedOutput();
+            if (connectedOutput != null)
+                addAddress(connectedOutput, addresses);
+        }
+
+        addressesByTxHash.put(tx.getHash(), addresses);
+        addresses.stream().forEach(address ->
+                transactionsByAddress.computeIfAbsent(address, key -> new HashSet<>()).add(tx));
+        return addresses;
+    }
+
+    synchronized void invalidateBalances() {
+        balanceByAddress = null;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Getters
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    synchronized List<Transaction> getTransactions(Address address) {
+        Set<Transaction> transactions = transactionsByAddress.get(address);
+        return transactions != null ? new ArrayList<>(transactions) : Collections.emptyList();
+    }
+
+    synchronized Set<Address> getAddresses(Transaction tx) {
+        Set<Address> addresses = addressesByTxHash.get(tx.getHash());
+        return addresses != null ? addresses : update(tx);
+    }
+
+    synchronized Coin getBalance(Wallet wallet, Address address) {
+        if (balanceByAddress == null) {
+            balanceByAddress = new HashMap<>();
+            for (TransactionOutput transactionOutput : wallet.calculateAllSpendCandidates()) {
+                Address outputAddress = getAddress(transactionOutput);
+                if (outputAddress != null)
+                    balanceByAddress.merge(outputAddress, transactionOutput.getValue(), Coin::add);
+            }
+        }
+        return balanceByAddress.getOrDefault(address, Coin.ZERO);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void addAddress(TransactionOutput transactionOutput, Set<Address> addresses) {
+        Address address = getAddress(transactionOutput);
+        if (address != null)
+            addresses.add(address);
+    }
+
+    @Nullable
+    private Address getAddress(TransactionOutput transactionOutput) {
+        if (transactionOutput.getScriptPubKey().isSentToAddress() || transactionOutput.getScriptPubKey().isPayToScriptHash())
+            return transactionOutput.getScriptPubKey().getToAddress(params);
+        else
+            return null;
+    }
+}
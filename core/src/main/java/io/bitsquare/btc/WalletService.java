@@ -17,12 +17,14 @@
 
 package io.bitsquare.btc;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.Service;
 import io.bitsquare.btc.listeners.AddressConfidenceListener;
 import io.bitsquare.btc.listeners.BalanceListener;
+import io.bitsquare.btc.listeners.TransactionListener;
 import io.bitsquare.btc.listeners.TxConfidenceListener;
 import io.bitsquare.common.UserThread;
 import io.bitsquare.common.handlers.ErrorMessageHandler;
@@ -53,6 +55,7 @@ import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -69,9 +72,16 @@ public class WalletService {
     public static final String PREFIX_KEY = "wallet.prefix";
     private static final long STARTUP_TIMEOUT = 60 * 1000;
 
-    private final CopyOnWriteArraySet<AddressConfidenceListener> addressConfidenceListeners = new CopyOnWriteArraySet<>();
-    private final CopyOnWriteArraySet<TxConfidenceListener> txConfidenceListeners = new CopyOnWriteArraySet<>();
-    private final CopyOnWriteArraySet<BalanceListener> balanceListeners = new CopyOnWriteArraySet<>();
+    // Listeners are registered by their address or tx id, so an event only reaches the listeners it concerns
+    private final Map<Address, CopyOnWriteArraySet<AddressConfidenceListener>> addressConfidenceListeners = new ConcurrentHashMap<>();
+    private final Map<String, CopyOnWriteArraySet<TxConfidenceListener>> txConfidenceListeners = new ConcurrentHashMap<>();
+    private final Map<Address, CopyOnWriteArraySet<BalanceListener>> balanceListeners = new ConcurrentHashMap<>();
+    // Listeners for the available balance of the wallet (no address)
+    private final CopyOnWriteArraySet<BalanceListener> walletBalanceListeners = new CopyOnWriteArraySet<>();
+    private final CopyOnWriteArraySet<TransactionListener> transactionListeners = new CopyOnWriteArraySet<>();
+    // Changes of a burst of wallet events (e.g. at block download) are collected and notified once
+    private final Set<Address> addressesWithChangedBalance = new HashSet<>();
+    private boolean balanceNotificationPending;
 
     private final DownloadListener downloadListener = new DownloadListener();
     private final WalletEventListener walletEventListener = new BitsquareWalletEventListener();
@@ -80,6 +90,7 @@ public class WalletService {
     private final TradeWalletService tradeWalletService;
     private final AddressEntryList addressEntryList;
     private final NetworkParameters params;
+    private final AddressIndex addressIndex;
     private final File walletDir;
     private final String walletPrefix;
     private final UserAgent userAgent;
@@ -102,6 +113,7 @@ public class WalletService {
         this.tradeWalletService = tradeWalletService;
         this.addressEntryList = addressEntryList;
         this.params = preferences.getBitcoinNetwork().getParameters();
+        this.addressIndex = new AddressIndex(params);
         this.walletDir = new File(walletDir, "bitcoin");
         this.walletPrefix = walletPrefix;
         this.userAgent = userAgent;
@@ -138,8 +150,7 @@ public class WalletService {
                 if (params != RegTestParams.get())
                     walletAppKit.peerGroup().setMaxConnections(11);
                 walletAppKit.peerGroup().setBloomFilterFalsePositiveRate(0.00001);
-                wallet = walletAppKit.wallet();
-                wallet.addEventListener(walletEventListener);
+                initWallet(walletAppKit.wallet());
 
                 addressEntryList.onWalletReady(wallet);
                 arbitratorAddressEntry = addressEntryList.getArbitratorAddressEntry();
@@ -238,6 +249,13 @@ public class WalletService {
         walletAppKit.startAsync();
     }
 
+    @VisibleForTesting
+    void initWallet(Wallet wallet) {
+        this.wallet = wallet;
+        addressIndex.rebuild(wallet);
+        wallet.addEventListener(walletEventListener);
+    }
+
     public void shutDown() {
         if (wallet != null)
             wallet.removeEventListener(walletEventListener);
@@ -274,30 +292,50 @@ public class WalletService {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     public AddressConfidenceListener addAddressConfidenceListener(AddressConfidenceListener listener) {
-        addressConfidenceListeners.add(listener);
+        addListener(addressConfidenceListeners, listener.getAddress(), listener);
         return listener;
     }
 
     public void removeAddressConfidenceListener(AddressConfidenceListener listener) {
-        addressConfidenceListeners.remove(listener);
+        if (listener != null)
+            removeListener(addressConfidenceListeners, listener.getAddress(), listener);
     }
 
     public TxConfidenceListener addTxConfidenceListener(TxConfidenceListener listener) {
-        txConfidenceListeners.add(listener);
+        addListener(txConfidenceListeners, listener.getTxID(), listener);
         return listener;
     }
 
     public void removeTxConfidenceListener(TxConfidenceListener listener) {
-        txConfidenceListeners.remove(listener);
+        if (listener != null)
+            removeListener(txConfidenceListeners, listener.getTxID(), listener);
     }
 
     public BalanceListener addBalanceListener(BalanceListener listener) {
-        balanceListeners.add(listener);
+        if (listener.getAddress() != null)
+            addListener(balanceListeners, listener.getAddress(), listener);
+        else
+            walletBalanceListeners.add(listener);
         return listener;
     }
 
     public void removeBalanceListener(BalanceListener listener) {
-        balanceListeners.remove(listener);
+        if (listener != null) {
+            if (listener.getAddress() != null)
+                removeListener(balanceListeners, listener.getAddress(), listener);
+            else
+                walletBalanceListeners.remove(listener);
+        }
+    }
+
+    public TransactionListener addTransactionListener(TransactionListener listener) {
+        transactionListeners.add(listener);
+        return listener;
+    }
+
+    public void removeTransactionListener(TransactionListener listener) {
+        if (listener != null)
+            transactionListeners.remove(listener);
     }
 
 
@@ -333,61 +371,21 @@ public class WalletService {
     public TransactionConfidence getConfidenceForAddress(Address address) {
         List<TransactionConfidence> transactionConfidenceList = new ArrayList<>();
         if (wallet != null) {
-            Set<Transaction> transactions = wallet.getTransactions(true);
-            if (transactions != null) {
-                transactionConfidenceList.addAll(transactions.stream().map(tx ->
-                        getTransactionConfidence(tx, address)).collect(Collectors.toList()));
-            }
+            transactionConfidenceList.addAll(addressIndex.getTransactions(address).stream()
+                    .map(Transaction::getConfidence).collect(Collectors.toList()));
         }
         return getMostRecentConfidence(transactionConfidenceList);
     }
 
     public TransactionConfidence getConfidenceForTxId(String txId) {
         if (wallet != null) {
-            Set<Transaction> transactions = wallet.getTransactions(true);
-            for (Transaction tx : transactions) {
-                if (tx.getHashAsString().equals(txId))
-                    return tx.getConfidence();
-            }
+            Transaction tx = wallet.getTransaction(Sha256Hash.wrap(txId));
+            if (tx != null)
+                return tx.getConfidence();
         }
         return null;
     }
 
-    private TransactionConfidence getTransactionConfidence(Transaction tx, Address address) {
-        List<TransactionOutput> mergedOutputs = getOutputsWithConnectedOutputs(tx);
-        List<TransactionConfidence> transactionConfidenceList = new ArrayList<>();
-
-        mergedOutputs.stream().filter(e -> e.getScriptPubKey().isSentToAddress() ||
-                e.getScriptPubKey().isPayToScriptHash()).forEach(transactionOutput -> {
-            Address outputAddress = transactionOutput.getScriptPubKey().getToAddress(params);
-            if (address.equals(outputAddress)) {
-                transactionConfidenceList.add(tx.getConfidence());
-            }
-        });
-        return getMostRecentConfidence(transactionConfidenceList);
-    }
-
-
-    private List<TransactionOutput> getOutputsWithConnectedOutputs(Transaction tx) {
-        List<TransactionOutput> transactionOutputs = tx.getOutputs();
-        List<TransactionOutput> connectedOutputs = new ArrayList<>();
-
-        // add all connected outputs from any inputs as well
-        List<TransactionInput> transactionInputs = tx.getInputs();
-        for (TransactionInput transactionInput : transactionInputs) {
-            TransactionOutput transactionOutput = transactionInput.getConnectedOutput();
-            if (transactionOutput != null) {
-                connectedOutputs.add(transactionOutput);
-            }
-        }
-
-        List<TransactionOutput> mergedOutputs = new ArrayList<>();
-        mergedOutputs.addAll(transactionOutputs);
-        mergedOutputs.addAll(connectedOutputs);
-        return mergedOutputs;
-    }
-
-
     private TransactionConfidence getMostRecentConfidence(List<TransactionConfidence> transactionConfidenceList) {
         TransactionConfidence transactionConfidence = null;
         for (TransactionConfidence confidence : transactionConfidenceList) {
@@ -416,19 +414,7 @@ public class WalletService {
     }
 
     public Coin getBalanceForAddress(Address address) {
-        return wallet != null ? getBalance(wallet.calculateAllSpendCandidates(), address) : Coin.ZERO;
-    }
-
-    private Coin getBalance(List<TransactionOutput> transactionOutputs, Address address) {
-        Coin balance = Coin.ZERO;
-        for (TransactionOutput transactionOutput : transactionOutputs) {
-            if (transactionOutput.getScriptPubKey().isSentToAddress() || transactionOutput.getScriptPubKey().isPayToScriptHash()) {
-                Address addressOutput = transactionOutput.getScriptPubKey().getToAddress(params);
-                if (addressOutput.equals(address))
-                    balance = balance.add(transactionOutput.getValue());
-            }
-        }
-        return balance;
+        return wallet != null ? addressIndex.getBalance(wallet, address) : Coin.ZERO;
     }
 
 
@@ -506,6 +492,22 @@ public class WalletService {
     // Private methods
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    private static <K, L> void addListener(Map<K, CopyOnWriteArraySet<L>> listenersByKey, K key, L listener) {
+        listenersByKey.compute(key, (k, listeners) -> {
+            if (listeners == null)
+                listeners = new CopyOnWriteArraySet<>();
+            listeners.add(listener);
+            return listeners;
+        });
+    }
+
+    private static <K, L> void removeListener(Map<K, CopyOnWriteArraySet<L>> listenersByKey, K key, L listener) {
+        listenersByKey.computeIfPresent(key, (k, listeners) -> {
+            listeners.remove(listener);
+            return listeners.isEmpty() ? null : listeners;
+        });
+    }
+
     private static void printTxWithInputs(String tracePrefix, Transaction tx) {
         log.trace(tracePrefix + ": " + tx.toString());
         for (TransactionInput input : tx.getInputs()) {
@@ -545,39 +547,73 @@ public class WalletService {
     private class BitsquareWalletEventListener extends AbstractWalletEventListener {
         @Override
         public void onCoinsReceived(Wallet wallet, Transaction tx, Coin prevBalance, Coin newBalance) {
-            notifyBalanceListeners();
+            onBalanceChanged(addressIndex.update(tx));
+            transactionListeners.stream().forEach(listener -> listener.onTransaction(tx));
         }
 
         @Override
         public void onCoinsSent(Wallet wallet, Transaction tx, Coin prevBalance, Coin newBalance) {
-            notifyBalanceListeners();
+            onBalanceChanged(addressIndex.update(tx));
+            transactionListeners.stream().forEach(listener -> listener.onTransaction(tx));
+        }
+
+        @Override
+        public void onReorganize(Wallet wallet) {
+            addressIndex.rebuild(wallet);
+        }
+
+        @Override
+        public void onWalletChanged(Wallet wallet) {
+            addressIndex.invalidateBalances();
         }
 
         @Override
         public void onTransactionConfidenceChanged(Wallet wallet, Transaction tx) {
-            for (AddressConfidenceListener addressConfidenceListener : addressConfidenceListeners) {
-                List<TransactionConfidence> transactionConfidenceList = new ArrayList<>();
-                transactionConfidenceList.add(getTransactionConfidence(tx, addressConfidenceListener.getAddress()));
+            // The addresses of the tx are resolved once and only the listeners of those addresses get called
+            Set<Address> addresses = addressIndex.update(tx);
+            addressIndex.invalidateBalances();
+            TransactionConfidence confidence = tx.getConfidence();
+            addresses.stream().forEach(address -> {
+                Set<AddressConfidenceListener> listeners = addressConfidenceListeners.get(address);
+                if (listeners != null)
+                    listeners.stream().forEach(listener -> listener.onTransactionConfidenceChanged(confidence));
+            });
+
+            Set<TxConfidenceListener> listeners = txConfidenceListeners.get(tx.getHashAsString());
+            if (listeners != null)
+                listeners.stream().forEach(listener -> listener.onTransactionConfidenceChanged(confidence));
+
+            // The outputs of a dead tx are not spendable anymore
+            if (confidence.getConfidenceType() == TransactionConfidence.ConfidenceType.DEAD)
+                onBalanceChanged(addresses);
+        }
 
-                TransactionConfidence transactionConfidence = getMostRecentConfidence(transactionConfidenceList);
-                addressConfidenceListener.onTransactionConfidenceChanged(transactionConfidence);
+        private void onBalanceChanged(Set<Address> addresses) {
+            addressIndex.invalidateBalances();
+            addressesWithChangedBalance.addAll(addresses);
+            if (!balanceNotificationPending) {
+                balanceNotificationPending = true;
+                // Events which are already queued at the UserThread are handled before the notification
+                UserThread.execute(this::notifyBalanceListeners);
             }
-
-            txConfidenceListeners.stream()
-                    .filter(txConfidenceListener -> tx.getHashAsString().equals(txConfidenceListener.getTxID()))
-                    .forEach(txConfidenceListener ->
-                            txConfidenceListener.onTransactionConfidenceChanged(tx.getConfidence()));
         }
 
         private void notifyBalanceListeners() {
-            for (BalanceListener balanceListener : balanceListeners) {
-                Coin balance;
-                if (balanceListener.getAddress() != null)
-                    balance = getBalanceForAddress(balanceListener.getAddress());
-                else
-                    balance = getAvailableBalance();
-
-                balanceListener.onBalanceChanged(balance);
+            balanceNotificationPending = false;
+            List<Address> addresses = new ArrayList<>(addressesWithChangedBalance);
+            addressesWithChangedBalance.clear();
+
+            addresses.stream().forEach(address -> {
+                Set<BalanceListener> listeners = balanceListeners.get(address);
+                if (listeners != null) {
+                    Coin balance = getBalanceForAddress(address);
+                    listeners.stream().forEach(listener -> listener.onBalanceChanged(balance));
+                }
+            });
+
+            if (!walletBalanceListeners.isEmpty()) {
+                Coin balance = getAvailableBalance();
+                walletBalanceListeners.stream().forEach(listener -> listener.onBalanceChanged(balance));
             }
         }
     }
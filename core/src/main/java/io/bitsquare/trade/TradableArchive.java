@@ -0,0 +1,160 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.trade;
+
+import io.bitsquare.common.crypto.KeyRing;
+import io.bitsquare.storage.ArchiveStorage;
+import io.bitsquare.storage.Storage;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * History of closed or failed tradables.
+ * <p>
+ * Only the summaries (TradableSummary) are kept in memory, in an index which is persisted with a journal. The full
+ * tradables are stored in separate files (ArchiveStorage) and loaded on demand, so memory use and the costs for
+ * adding a tradable do not grow with the size of the history.
+ */
+public class TradableArchive<T extends Tradable> {
+    private static final Logger log = LoggerFactory.getLogger(TradableArchive.class);
+
+    // Number of full tradables we keep in memory after they got added or loaded
+    private static final int CACHE_SIZE = 20;
+
+    private final KeyRing keyRing;
+    private final Storage<HashMap<String, TradableSummary>> indexStorage;
+    private final HashMap<String, TradableSummary> index = new HashMap<>();
+    private final ArchiveStorage<T> archiveStorage;
+    private final ObservableList<TradableSummary> summaries;
+    private final Map<String, T> cache = new LinkedHashMap<String, T>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, T> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public TradableArchive(KeyRing keyRing, File storageDir, String fileName) {
+        this.keyRing = keyRing;
+
+        indexStorage = new Storage<>(storageDir);
+        HashMap<String, TradableSummary> persisted = indexStorage.initAndGetPersistedWithJournal(index,
+                fileName + "Index");
+        if (persisted != null)
+            index.putAll(persisted);
+
+        archiveStorage = new ArchiveStorage<>(storageDir, fileName + "Archive");
+        addMissingSummaries();
+
+        summaries = FXCollections.observableArrayList(index.values());
+
+        migrateTradableList(storageDir, fileName);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public void add(T tradable) {
+        String id = tradable.getId();
+        TradableSummary summary = createSummary(tradable);
+        archiveStorage.write(id, tradable);
+        cache.put(id, tradable);
+
+        TradableSummary previous = index.put(id, summary);
+        indexStorage.queueUpAddedEntry(id, summary);
+        if (previous != null)
+            summaries.set(summaries.indexOf(previous), summary);
+        else
+            summaries.add(summary);
+    }
+
+    public ObservableList<TradableSummary> getSummaries() {
+        return summaries;
+    }
+
+    public boolean contains(String id) {
+        return index.containsKey(id);
+    }
+
+    /**
+     * Loads the full tradable from disk if it is not in the cache.
+     */
+    public Optional<T> getTradableById(String id) {
+        if (!index.containsKey(id))
+            return Optional.empty();
+
+        T tradable = cache.get(id);
+        if (tradable == null) {
+            tradable = archiveStorage.read(id);
+            if (tradable != null)
+                cache.put(id, tradable);
+            else
+                log.error("Archived tradable could not be read. id=" + id);
+        }
+        return Optional.ofNullable(tradable);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private TradableSummary createSummary(Tradable tradable) {
+        return new TradableSummary(tradable, tradable.getOffer().isMyOffer(keyRing));
+    }
+
+    // If we got interrupted after the tradable was written but before the index was, we recreate the summary
+    private void addMissingSummaries() {
+        archiveStorage.getIds().stream()
+                .filter(id -> !index.containsKey(id))
+                .forEach(id -> {
+                    T tradable = archiveStorage.read(id);
+                    if (tradable != null) {
+                        TradableSummary summary = createSummary(tradable);
+                        index.put(id, summary);
+                        indexStorage.queueUpAddedEntry(id, summary);
+                    }
+                });
+    }
+
+    // Older versions stored all tradables in one TradableList file. We move them to the archive and remove that file.
+    private void migrateTradableList(File storageDir, String fileName) {
+        if (new File(storageDir, fileName).exists()) {
+            Storage<TradableList<T>> tradableListStorage = new Storage<>(storageDir);
+            TradableList<T> tradableList = new TradableList<>(tradableListStorage, fileName);
+            log.info("Move {} tradables from {} to the archive", tradableList.size(), fileName);
+            tradableList.stream().forEach(this::add);
+            // The archive files are written before the file gets removed
+            tradableListStorage.remove(fileName);
+        }
+    }
+}
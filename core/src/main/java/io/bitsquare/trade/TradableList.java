@@ -18,6 +18,11 @@
 package io.bitsquare.trade;
 
 import io.bitsquare.app.Version;
+import io.bitsquare.common.util.SerializationUtil;
+import io.bitsquare.storage.JournalEntry;
+import io.bitsquare.storage.Journalable;
+import io.bitsquare.storage.PersistenceService;
+import io.bitsquare.storage.Snapshotable;
 import io.bitsquare.storage.Storage;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -28,8 +33,12 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
 
-public class TradableList<T extends Tradable> extends ArrayList<T> implements Serializable {
+public class TradableList<T extends Tradable> extends ArrayList<T> implements Serializable, Snapshotable<TradableList<T>>,
+        Journalable {
     // That object is saved to disc. We need to take care of changes to not break deserialization.
     private static final long serialVersionUID = Version.LOCAL_DB_VERSION;
 
@@ -38,6 +47,8 @@ public class TradableList<T extends Tradable> extends ArrayList<T> implements Se
     transient final private Storage<TradableList<T>> storage;
     // Use getObservableList() also class locally, to be sure that object exists in case we use the object as deserialized form
     transient private ObservableList<T> observableList;
+    // Index for routing of inbound messages by trade or offer ID. Use getTradableById() for the same reason as above.
+    transient private Map<String, T> tradableById;
 
     // Superclass is ArrayList, which will be persisted
 
@@ -48,11 +59,28 @@ public class TradableList<T extends Tradable> extends ArrayList<T> implements Se
     public TradableList(Storage<TradableList<T>> storage, String fileName) {
         this.storage = storage;
 
-        TradableList persisted = storage.initAndGetPersisted(this, fileName);
+        // Trades and open offers are written before queued writes of less important data
+        storage.setPriority(PersistenceService.Priority.HIGH);
+        TradableList persisted = storage.initAndGetPersistedWithJournal(this, fileName);
         if (persisted != null) {
             this.addAll(persisted);
         }
         observableList = FXCollections.observableArrayList(this);
+        tradableById = null;
+    }
+
+    // Used for the snapshot which gets persisted. The tradables get mutated on the UserThread (e.g. the state of a
+    // trade during the protocol), so we copy them by serializing them. The list contains only the open offers and
+    // pending trades, so that is cheap.
+    private TradableList(TradableList<T> tradableList) {
+        super(tradableList.size());
+        this.storage = null;
+        for (T tradable : tradableList) {
+            byte[] serialized = SerializationUtil.serialize(tradable);
+            T copy = serialized != null ? SerializationUtil.deserialize(serialized) : null;
+            // If it cannot be serialized the write of the snapshot fails anyway
+            super.add(copy != null ? copy : tradable);
+        }
     }
 
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
@@ -67,7 +95,8 @@ public class TradableList<T extends Tradable> extends ArrayList<T> implements Se
     public boolean add(T tradable) {
         boolean result = super.add(tradable);
         getObservableList().add(tradable);
-        storage.queueUpForSave();
+        getIndex().put(tradable.getId(), tradable);
+        storage.queueUpAddedEntry(tradable.getId(), tradable);
         return result;
     }
 
@@ -75,14 +104,68 @@ public class TradableList<T extends Tradable> extends ArrayList<T> implements Se
     public boolean remove(Object tradable) {
         boolean result = super.remove(tradable);
         getObservableList().remove(tradable);
-        storage.queueUpForSave();
+        if (result) {
+            String id = ((Tradable) tradable).getId();
+            getIndex().remove(id, tradable);
+            storage.queueUpRemovedEntry(id);
+        }
         return result;
     }
 
+    // Called at startup for the journal entries of the last session, before the observableList is created
+    @SuppressWarnings("unchecked")
+    @Override
+    public void applyJournalEntry(JournalEntry journalEntry) {
+        int index = indexOf(journalEntry.key);
+        switch (journalEntry.operation) {
+            case ADD:
+                if (index >= 0)
+                    super.set(index, (T) journalEntry.value);
+                else
+                    super.add((T) journalEntry.value);
+                break;
+            case UPDATE:
+                if (index >= 0)
+                    super.set(index, (T) journalEntry.value);
+                break;
+            case REMOVE:
+                if (index >= 0)
+                    super.remove(index);
+                break;
+        }
+        // gets rebuilt from the list at the next access
+        tradableById = null;
+    }
+
+    @Override
+    public TradableList<T> getSnapshot() {
+        return new TradableList<>(this);
+    }
+
+    private int indexOf(Serializable id) {
+        for (int i = 0; i < size(); i++) {
+            if (get(i).getId().equals(id))
+                return i;
+        }
+        return -1;
+    }
+
     public ObservableList<T> getObservableList() {
         if (observableList == null)
             observableList = FXCollections.observableArrayList(this);
         return observableList;
     }
 
+    public Optional<T> getTradableById(String id) {
+        return Optional.ofNullable(getIndex().get(id));
+    }
+
+    private Map<String, T> getIndex() {
+        if (tradableById == null) {
+            tradableById = new HashMap<>();
+            this.stream().forEach(tradable -> tradableById.putIfAbsent(tradable.getId(), tradable));
+        }
+        return tradableById;
+    }
+
 }
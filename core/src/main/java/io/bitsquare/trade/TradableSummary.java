@@ -0,0 +1,98 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.trade;
+
+import io.bitsquare.app.Version;
+import io.bitsquare.trade.offer.Offer;
+import io.bitsquare.trade.offer.OpenOffer;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.utils.Fiat;
+
+import javax.annotation.Nullable;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * The data of an archived Tradable needed for the history lists. The full Tradable is only loaded on demand
+ * (see TradableArchive).
+ */
+public final class TradableSummary implements Serializable {
+    // That object is saved to disc. We need to take care of changes to not break deserialization.
+    private static final long serialVersionUID = Version.LOCAL_DB_VERSION;
+
+    public final String id;
+    public final String shortId;
+    public final Date date;
+    // Direction from our point of view (mirrored if it was not our offer)
+    public final Offer.Direction direction;
+    public final Fiat price;
+    public final boolean isTrade;
+
+    // Only set for trades
+    @Nullable
+    public final Coin tradeAmount;
+    @Nullable
+    public final Fiat tradeVolume;
+    @Nullable
+    public final Trade.State tradeState;
+    @Nullable
+    public final Trade.DisputeState disputeState;
+
+    // Only set for open offers
+    @Nullable
+    public final OpenOffer.State openOfferState;
+
+    public TradableSummary(Tradable tradable, boolean isMyOffer) {
+        Offer offer = tradable.getOffer();
+        id = tradable.getId();
+        shortId = tradable.getShortId();
+        date = tradable.getDate();
+        direction = isMyOffer ? offer.getDirection() : offer.getMirroredDirection();
+        price = offer.getPrice();
+
+        isTrade = tradable instanceof Trade;
+        if (isTrade) {
+            Trade trade = (Trade) tradable;
+            tradeAmount = trade.getTradeAmount();
+            tradeVolume = trade.getTradeVolume();
+            tradeState = trade.getState();
+            disputeState = trade.getDisputeState();
+        } else {
+            tradeAmount = null;
+            tradeVolume = null;
+            tradeState = null;
+            disputeState = null;
+        }
+
+        if (tradable instanceof OpenOffer)
+            openOfferState = ((OpenOffer) tradable).getState();
+        else
+            openOfferState = null;
+    }
+
+    @Override
+    public String toString() {
+        return "TradableSummary{" +
+                "id='" + id + '\'' +
+                ", date=" + date +
+                ", direction=" + direction +
+                ", tradeState=" + tradeState +
+                ", openOfferState=" + openOfferState +
+                '}';
+    }
+}
@@ -143,6 +143,12 @@ abstract public class Trade implements Tradable, Model, Serializable {
     // Trades are saved in the TradeList
     transient private Storage<? extends TradableList> storage;
     transient protected TradeProtocol tradeProtocol;
+    // While task runners are running, changes are persisted at the end of the task sequence (see TradeTaskRunner)
+    transient private int numDeferringTaskRunners;
+    // Incremented at each change, persist() only writes if it differs from the version of the last write.
+    // A new trade starts with a version which was not written yet, a deserialized one with the persisted version.
+    transient private long version;
+    transient private long persistedVersion = -1;
 
     // Immutable
     private final Offer offer;
@@ -272,7 +278,7 @@ abstract public class Trade implements Tradable, Model, Serializable {
         log.debug("setDepositTx " + tx);
         this.depositTx = tx;
         setupConfidenceListener();
-        storage.queueUpForSave();
+        persistIfNotDeferred();
     }
 
     @Nullable
@@ -301,13 +307,13 @@ abstract public class Trade implements Tradable, Model, Serializable {
     public void setState(State state) {
         this.state = state;
         processStateProperty.set(state);
-        storage.queueUpForSave();
+        persistIfNotDeferred();
     }
 
     public void setDisputeState(DisputeState disputeState) {
         this.disputeState = disputeState;
         disputeStateProperty.set(disputeState);
-        storage.queueUpForSave();
+        persistIfNotDeferred();
     }
 
     public DisputeState getDisputeState() {
@@ -317,7 +323,7 @@ abstract public class Trade implements Tradable, Model, Serializable {
     public void setTradePeriodState(TradePeriodState tradePeriodState) {
         this.tradePeriodState = tradePeriodState;
         tradePeriodStateProperty.set(tradePeriodState);
-        storage.queueUpForSave();
+        persistIfNotDeferred();
     }
 
     public TradePeriodState getTradePeriodState() {
@@ -337,15 +343,46 @@ abstract public class Trade implements Tradable, Model, Serializable {
     // Model implementation
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    // Get called from taskRunner after each completed task
+    // Get called from taskRunner at the end of the task sequence and after checkpoint tasks.
+    // We only write if the trade has changed since the last call.
     @Override
     public void persist() {
-        storage.queueUpForSave();
+        if (version != persistedVersion) {
+            persistedVersion = version;
+            storage.queueUpChangedEntry(getId(), this);
+        } else {
+            log.trace("Trade has not changed. We skip persisting. tradeId=" + getId());
+        }
+    }
+
+    // Tasks change the trade and the process model also directly, so the TradeTaskRunner marks it after each task
+    public void markChanged() {
+        version++;
     }
 
     @Override
     public void onComplete() {
-        storage.queueUpForSave();
+        persist();
+    }
+
+    // Setters call that instead of persist(), so changes done by tasks are written once at the end of the sequence
+    private void persistIfNotDeferred() {
+        markChanged();
+        if (numDeferringTaskRunners == 0)
+            persist();
+    }
+
+    public void deferPersistence() {
+        numDeferringTaskRunners++;
+    }
+
+    // Changes done by setters while persistence was deferred are written when the last deferring runner has finished
+    public void endDeferredPersistence() {
+        if (numDeferringTaskRunners > 0) {
+            numDeferringTaskRunners--;
+            if (numDeferringTaskRunners == 0)
+                persist();
+        }
     }
 
 
@@ -535,7 +572,7 @@ abstract public class Trade implements Tradable, Model, Serializable {
 
     public void setHalfTradePeriodReachedWarningDisplayed(boolean halfTradePeriodReachedWarningDisplayed) {
         this.halfTradePeriodReachedWarningDisplayed = halfTradePeriodReachedWarningDisplayed;
-        storage.queueUpForSave();
+        persistIfNotDeferred();
     }
 
     public boolean isHalfTradePeriodReachedWarningDisplayed() {
@@ -544,7 +581,7 @@ abstract public class Trade implements Tradable, Model, Serializable {
 
     public void setTradePeriodOverWarningDisplayed(boolean tradePeriodOverWarningDisplayed) {
         this.tradePeriodOverWarningDisplayed = tradePeriodOverWarningDisplayed;
-        storage.queueUpForSave();
+        persistIfNotDeferred();
     }
 
     public boolean isTradePeriodOverWarningDisplayed() {
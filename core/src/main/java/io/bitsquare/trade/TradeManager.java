@@ -143,7 +143,7 @@ public class TradeManager {
                 } else if (message instanceof TradeMessage) {
                     log.trace("Received TradeMessage: " + message);
                     String tradeId = ((TradeMessage) message).tradeId;
-                    Optional<Trade> tradeOptional = trades.stream().filter(e -> e.getId().equals(tradeId)).findAny();
+                    Optional<Trade> tradeOptional = trades.getTradableById(tradeId);
                     if (tradeOptional.isPresent())
                         tradeOptional.get().setMailboxMessage(decryptedMsgWithPubKey);
                 }
@@ -252,6 +252,7 @@ public class TradeManager {
 
     public void onOfferRemovedFromRemoteOfferBook(Offer offer) {
         offer.cancelAvailabilityRequest();
+        user.onOfferRemoved(offer.getId());
     }
 
 
@@ -396,7 +397,7 @@ public class TradeManager {
     }
 
     public Optional<Trade> getTradeById(String tradeId) {
-        return trades.stream().filter(e -> e.getId().equals(tradeId)).findFirst();
+        return trades.getTradableById(tradeId);
     }
 
 }
\ No newline at end of file
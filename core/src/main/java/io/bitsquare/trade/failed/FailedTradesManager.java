@@ -19,8 +19,8 @@ package io.bitsquare.trade.failed;
 
 import com.google.inject.Inject;
 import io.bitsquare.common.crypto.KeyRing;
-import io.bitsquare.storage.Storage;
-import io.bitsquare.trade.TradableList;
+import io.bitsquare.trade.TradableArchive;
+import io.bitsquare.trade.TradableSummary;
 import io.bitsquare.trade.Trade;
 import io.bitsquare.trade.offer.Offer;
 import javafx.collections.ObservableList;
@@ -33,13 +33,13 @@ import java.util.Optional;
 
 public class FailedTradesManager {
     private static final Logger log = LoggerFactory.getLogger(FailedTradesManager.class);
-    private final TradableList<Trade> failedTrades;
+    private final TradableArchive<Trade> failedTrades;
     private final KeyRing keyRing;
 
     @Inject
     public FailedTradesManager(KeyRing keyRing, @Named("storage.dir") File storageDir) {
         this.keyRing = keyRing;
-        this.failedTrades = new TradableList<>(new Storage<>(storageDir), "FailedTrades");
+        this.failedTrades = new TradableArchive<>(keyRing, storageDir, "FailedTrades");
     }
 
     public void add(Trade trade) {
@@ -50,11 +50,12 @@ public class FailedTradesManager {
         return offer.isMyOffer(keyRing);
     }
 
-    public ObservableList<Trade> getFailedTrades() {
-        return failedTrades.getObservableList();
+    public ObservableList<TradableSummary> getFailedTradeSummaries() {
+        return failedTrades.getSummaries();
     }
 
+    // Loads the trade from the archive
     public Optional<Trade> getTradeById(String id) {
-        return failedTrades.stream().filter(e -> e.getId().equals(id)).findFirst();
+        return failedTrades.getTradableById(id);
     }
 }
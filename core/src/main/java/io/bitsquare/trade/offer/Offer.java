@@ -105,6 +105,17 @@ public final class Offer implements PubKeyProtectedExpirablePayload {
     @JsonExclude
     transient private StringProperty errorMessageProperty = new SimpleStringProperty();
 
+    // Derived values are immutable, so we create them once and not at each call (e.g. from comparators or table cells).
+    // After deserialisation they are created again at first access.
+    @JsonExclude
+    transient private Fiat price;
+    @JsonExclude
+    transient private Fiat offerVolume;
+    @JsonExclude
+    transient private Fiat minOfferVolume;
+    @JsonExclude
+    transient private PaymentMethod paymentMethod;
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Constructor
@@ -184,17 +195,23 @@ public final class Offer implements PubKeyProtectedExpirablePayload {
 
     public Fiat getVolumeByAmount(Coin amount) {
         if (fiatPrice != 0 && amount != null && !amount.isZero())
-            return new ExchangeRate(Fiat.valueOf(currencyCode, fiatPrice)).coinToFiat(amount);
+            return new ExchangeRate(getPrice()).coinToFiat(amount);
         else
             return null;
     }
 
+    @Nullable
     public Fiat getOfferVolume() {
-        return getVolumeByAmount(getAmount());
+        if (offerVolume == null)
+            offerVolume = getVolumeByAmount(getAmount());
+        return offerVolume;
     }
 
+    @Nullable
     public Fiat getMinOfferVolume() {
-        return getVolumeByAmount(getMinAmount());
+        if (minOfferVolume == null)
+            minOfferVolume = getVolumeByAmount(getMinAmount());
+        return minOfferVolume;
     }
 
     public String getReferenceText() {
@@ -275,7 +292,9 @@ public final class Offer implements PubKeyProtectedExpirablePayload {
     }
 
     public Fiat getPrice() {
-        return Fiat.valueOf(currencyCode, fiatPrice);
+        if (price == null)
+            price = Fiat.valueOf(currencyCode, fiatPrice);
+        return price;
     }
 
     public Coin getAmount() {
@@ -286,6 +305,26 @@ public final class Offer implements PubKeyProtectedExpirablePayload {
         return Coin.valueOf(minAmount);
     }
 
+    // Primitive accessors for sorting and aggregation, they don't create any objects
+
+    public long getPriceValue() {
+        return fiatPrice;
+    }
+
+    public long getAmountValue() {
+        return amount;
+    }
+
+    public long getMinAmountValue() {
+        return minAmount;
+    }
+
+    // 0 if the volume is not defined
+    public long getOfferVolumeValue() {
+        Fiat offerVolume = getOfferVolume();
+        return offerVolume != null ? offerVolume.value : 0;
+    }
+
     public Direction getDirection() {
         return direction;
     }
@@ -295,7 +334,9 @@ public final class Offer implements PubKeyProtectedExpirablePayload {
     }
 
     public PaymentMethod getPaymentMethod() {
-        return PaymentMethod.getPaymentMethodByName(paymentMethodName);
+        if (paymentMethod == null)
+            paymentMethod = PaymentMethod.getPaymentMethodByName(paymentMethodName);
+        return paymentMethod;
     }
 
     public String getCurrencyCode() {
@@ -25,6 +25,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -36,6 +37,7 @@ public class OfferBookService {
     private static final Logger log = LoggerFactory.getLogger(OfferBookService.class);
 
     private P2PService p2PService;
+    private final OrderBook orderBook;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -43,8 +45,9 @@ public class OfferBookService {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     @Inject
-    public OfferBookService(P2PService p2PService) {
+    public OfferBookService(P2PService p2PService, OrderBook orderBook) {
         this.p2PService = p2PService;
+        this.orderBook = orderBook;
     }
 
     public void addHashSetChangedListener(HashMapChangedListener hashMapChangedListener) {
@@ -61,6 +64,34 @@ public class OfferBookService {
         }
     }
 
+    /**
+     * Publishes all offers with a single broadcast.
+     */
+    public void addOffers(List<Offer> offers, ResultHandler resultHandler, ErrorMessageHandler errorMessageHandler) {
+        int numAdded = p2PService.addData(offers).size();
+        if (numAdded == offers.size()) {
+            log.trace("Add {} offers to network was successful.", numAdded);
+            resultHandler.handleResult();
+        } else {
+            errorMessageHandler.handleErrorMessage("Add offers failed for " + (offers.size() - numAdded) + " of "
+                    + offers.size() + " offers");
+        }
+    }
+
+    /**
+     * Refreshes the TTL of the offers we have in our data map and adds the others again in a batch.
+     */
+    public void refreshOffers(List<Offer> offers, ResultHandler resultHandler, ErrorMessageHandler errorMessageHandler) {
+        List<Offer> offersToAdd = offers.stream()
+                .filter(offer -> !p2PService.refreshTTL(offer))
+                .collect(Collectors.toList());
+        log.trace("Refreshed TTL of {} offers.", offers.size() - offersToAdd.size());
+        if (!offersToAdd.isEmpty())
+            addOffers(offersToAdd, resultHandler, errorMessageHandler);
+        else
+            resultHandler.handleResult();
+    }
+
     public void removeOffer(Offer offer, ResultHandler resultHandler, ErrorMessageHandler errorMessageHandler) {
         if (p2PService.removeData(offer)) {
             log.trace("Remove offer from network was successful. Offer = " + offer);
@@ -71,11 +102,11 @@ public class OfferBookService {
     }
 
     public List<Offer> getOffers() {
-        final List<Offer> offers = p2PService.getDataMap().values().stream()
-                .filter(e -> e.expirablePayload instanceof Offer)
-                .map(e -> (Offer) e.expirablePayload)
-                .collect(Collectors.toList());
-        return offers;
+        return new ArrayList<>(orderBook.getOffers());
+    }
+
+    public OrderBook getOrderBook() {
+        return orderBook;
     }
 
     public void removeOfferAtShutDown(Offer offer) {
@@ -0,0 +1,183 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.trade.offer;
+
+import io.bitsquare.p2p.Address;
+import io.bitsquare.payment.PaymentMethod;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.utils.Fiat;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Criteria for looking up offers in the OrderBook, e.g. the cheapest SEPA EUR sell offer which can be taken with
+ * at least 0.5 BTC and has an arbitrator we accept:
+ * <pre>
+ * new OfferQuery("EUR", Offer.Direction.SELL)
+ *         .paymentMethod(PaymentMethod.SEPA)
+ *         .minAmount(Coin.parseCoin("0.5"))
+ *         .arbitrators(user.getAcceptedArbitratorAddresses())
+ * </pre>
+ * The currency, direction and payment method select the index in the OrderBook, the other criteria are checked per
+ * offer while iterating in price order.
+ */
+public class OfferQuery {
+    private final String currencyCode;
+    private final Offer.Direction direction;
+    @Nullable
+    private PaymentMethod paymentMethod;
+    // The amount range the taker wants to trade
+    private long minAmount = 0;
+    private long maxAmount = Long.MAX_VALUE;
+    @Nullable
+    private Long limitPrice;
+    @Nullable
+    private String takerCountryCode;
+    @Nullable
+    private Set<Address> arbitratorAddresses;
+    @Nullable
+    private Predicate<Offer> predicate;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @param direction The direction of the offers (a taker who wants to buy bitcoin queries the SELL offers)
+     */
+    public OfferQuery(String currencyCode, Offer.Direction direction) {
+        this.currencyCode = currencyCode;
+        this.direction = direction;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Criteria
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public OfferQuery paymentMethod(PaymentMethod paymentMethod) {
+        this.paymentMethod = paymentMethod;
+        return this;
+    }
+
+    // Offers which can be taken with that amount or more
+    public OfferQuery minAmount(Coin amount) {
+        this.minAmount = amount.value;
+        this.maxAmount = Long.MAX_VALUE;
+        return this;
+    }
+
+    // Offers which can be taken with an amount in that range
+    public OfferQuery amountRange(Coin minAmount, Coin maxAmount) {
+        this.minAmount = minAmount.value;
+        this.maxAmount = maxAmount.value;
+        return this;
+    }
+
+    // Offers with that price or a better one (lower for sell offers, higher for buy offers)
+    public OfferQuery limitPrice(Fiat price) {
+        this.limitPrice = price.value;
+        return this;
+    }
+
+    // Offers which accept a taker with a bank account in that country
+    public OfferQuery takerCountry(String countryCode) {
+        this.takerCountryCode = countryCode;
+        return this;
+    }
+
+    // Offers with at least one of those arbitrators
+    public OfferQuery arbitrators(Collection<Address> arbitratorAddresses) {
+        this.arbitratorAddresses = new HashSet<>(arbitratorAddresses);
+        return this;
+    }
+
+    // Any additional criteria
+    public OfferQuery filter(Predicate<Offer> predicate) {
+        this.predicate = this.predicate != null ? this.predicate.and(predicate) : predicate;
+        return this;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public boolean matches(Offer offer) {
+        if (offer.getDirection() != direction || !offer.getCurrencyCode().equals(currencyCode))
+            return false;
+
+        if (paymentMethod != null && !offer.getPaymentMethod().equals(paymentMethod))
+            return false;
+
+        if (offer.getAmountValue() < minAmount || offer.getMinAmountValue() > maxAmount)
+            return false;
+
+        if (limitPrice != null && !isPriceWithinLimit(offer.getPriceValue()))
+            return false;
+
+        if (takerCountryCode != null) {
+            List<String> acceptedCountryCodes = offer.getAcceptedCountryCodes();
+            if (acceptedCountryCodes != null && !acceptedCountryCodes.contains(takerCountryCode))
+                return false;
+        }
+
+        if (arbitratorAddresses != null && !offer.getArbitratorAddresses().stream().anyMatch(arbitratorAddresses::contains))
+            return false;
+
+        return predicate == null || predicate.test(offer);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Getters
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public String getCurrencyCode() {
+        return currencyCode;
+    }
+
+    public Offer.Direction getDirection() {
+        return direction;
+    }
+
+    @Nullable
+    public PaymentMethod getPaymentMethod() {
+        return paymentMethod;
+    }
+
+    @Nullable
+    public Long getLimitPrice() {
+        return limitPrice;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private boolean isPriceWithinLimit(long price) {
+        return direction == Offer.Direction.SELL ? price <= limitPrice : price >= limitPrice;
+    }
+}
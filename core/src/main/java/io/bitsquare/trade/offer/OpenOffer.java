@@ -83,7 +83,7 @@ public class OpenOffer implements Tradable, Serializable {
     public void setState(State state) {
         log.trace("setState" + state);
         this.state = state;
-        storage.queueUpForSave();
+        storage.queueUpChangedEntry(getId(), this);
 
         // We keep it reserved for a limited time, if trade preparation fails we revert to available state
         if (this.state == State.RESERVED)
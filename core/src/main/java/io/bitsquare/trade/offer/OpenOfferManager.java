@@ -48,9 +48,11 @@ import javax.annotation.Nullable;
 import javax.inject.Named;
 import java.io.File;
 import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.stream.Collectors;
 
 import static com.google.inject.internal.util.$Preconditions.checkNotNull;
 import static io.bitsquare.util.Validator.nonEmptyStringOf;
@@ -163,13 +165,14 @@ public class OpenOfferManager {
     }
 
     private void rePublishOffers() {
-        if (!openOffers.isEmpty()) log.trace("rePublishOffers");
-        for (OpenOffer openOffer : openOffers) {
-            offerBookService.addOffer(openOffer.getOffer(),
-                    () -> log.debug("Successful added offer to P2P network"),
-                    errorMessage -> log.error("Add offer to P2P network failed. " + errorMessage));
+        if (!openOffers.isEmpty()) {
+            log.trace("rePublishOffers");
+            List<Offer> offers = openOffers.stream().map(OpenOffer::getOffer).collect(Collectors.toList());
+            offerBookService.refreshOffers(offers,
+                    () -> log.debug("Successful refreshed offers in P2P network"),
+                    errorMessage -> log.error("Refresh offers in P2P network failed. " + errorMessage));
             //setupDepositPublishedListener(openOffer);
-            openOffer.setStorage(openOffersStorage);
+            openOffers.stream().forEach(openOffer -> openOffer.setStorage(openOffersStorage));
         }
     }
 
@@ -209,7 +212,6 @@ public class OpenOfferManager {
                 transaction -> {
                     OpenOffer openOffer = new OpenOffer(offer, openOffersStorage);
                     openOffers.add(openOffer);
-                    openOffersStorage.queueUpForSave();
                     resultHandler.handleResult(transaction);
                 }
         );
@@ -255,7 +257,7 @@ public class OpenOfferManager {
     }
 
     public Optional<OpenOffer> findOpenOffer(String offerId) {
-        return openOffers.stream().filter(openOffer -> openOffer.getId().equals(offerId)).findAny();
+        return openOffers.getTradableById(offerId);
     }
 
     // Close openOffer after deposit published
@@ -309,6 +311,6 @@ public class OpenOfferManager {
     }
 
     public Optional<OpenOffer> getOpenOfferById(String offerId) {
-        return openOffers.stream().filter(e -> e.getId().equals(offerId)).findFirst();
+        return openOffers.getTradableById(offerId);
     }
 }
@@ -0,0 +1,336 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.trade.offer;
+
+import io.bitsquare.p2p.P2PService;
+import io.bitsquare.p2p.storage.HashMapChangedListener;
+import io.bitsquare.p2p.storage.data.ProtectedData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The offers of the P2P network indexed by market (currency code and direction) and sorted by price.
+ * It is maintained incrementally from the data storage events, so consumers don't need to scan the whole data map
+ * and sort the offers themselves. Best price lookups are O(log n), range scans O(log n + k).
+ * Offers can be queried with an OfferQuery in price order, and subscriptions get notified about new offers
+ * matching a query.
+ * <p>
+ * Updated on the UserThread, can be read from any thread (the returned collections are weakly consistent views).
+ */
+public class OrderBook {
+    private static final Logger log = LoggerFactory.getLogger(OrderBook.class);
+
+    public interface Listener {
+        void onOfferAdded(Offer offer);
+
+        void onOfferRemoved(Offer offer);
+    }
+
+    private final Map<String, Offer> offersById = new ConcurrentHashMap<>();
+    // Key is currencyCode + direction, offers sorted by ascending price
+    private final Map<String, ConcurrentSkipListMap<PriceKey, Offer>> offersByMarket = new ConcurrentHashMap<>();
+    // Key is currencyCode + direction + paymentMethod, offers sorted by ascending price
+    private final Map<String, ConcurrentSkipListMap<PriceKey, Offer>> offersByMarketAndPaymentMethod = new ConcurrentHashMap<>();
+    private final CopyOnWriteArraySet<Listener> listeners = new CopyOnWriteArraySet<>();
+    // Key is currencyCode + direction
+    private final Map<String, CopyOnWriteArraySet<Subscription>> subscriptionsByMarket = new ConcurrentHashMap<>();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Inject
+    public OrderBook(P2PService p2PService) {
+        p2PService.addHashSetChangedListener(new HashMapChangedListener() {
+            @Override
+            public void onAdded(ProtectedData entry) {
+                if (entry.expirablePayload instanceof Offer)
+                    add((Offer) entry.expirablePayload);
+            }
+
+            @Override
+            public void onRemoved(ProtectedData entry) {
+                if (entry.expirablePayload instanceof Offer)
+                    remove((Offer) entry.expirablePayload);
+            }
+        });
+
+        p2PService.getDataMap().values().stream()
+                .filter(e -> e.expirablePayload instanceof Offer)
+                .forEach(e -> add((Offer) e.expirablePayload));
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public Collection<Offer> getOffers() {
+        return Collections.unmodifiableCollection(offersById.values());
+    }
+
+    public Optional<Offer> getOfferById(String offerId) {
+        return Optional.ofNullable(offersById.get(offerId));
+    }
+
+    /**
+     * @return The offers of that market with the best price first (lowest price for sell offers, highest price for
+     * buy offers).
+     */
+    public Collection<Offer> getOffers(String currencyCode, Offer.Direction direction) {
+        ConcurrentSkipListMap<PriceKey, Offer> offers = getMarket(currencyCode, direction);
+        if (offers == null)
+            return Collections.emptyList();
+
+        return Collections.unmodifiableCollection(direction == Offer.Direction.SELL ?
+                offers.values() : offers.descendingMap().values());
+    }
+
+    public Optional<Offer> getBestOffer(String currencyCode, Offer.Direction direction) {
+        ConcurrentSkipListMap<PriceKey, Offer> offers = getMarket(currencyCode, direction);
+        if (offers == null)
+            return Optional.empty();
+
+        Map.Entry<PriceKey, Offer> entry = direction == Offer.Direction.SELL ? offers.firstEntry() : offers.lastEntry();
+        return entry != null ? Optional.of(entry.getValue()) : Optional.empty();
+    }
+
+    /**
+     * @param minPrice Inclusive, as long value of the Fiat price
+     * @param maxPrice Inclusive, as long value of the Fiat price
+     * @return The offers in that price range sorted by ascending price.
+     */
+    public Collection<Offer> getOffersInPriceRange(String currencyCode, Offer.Direction direction, long minPrice,
+                                                   long maxPrice) {
+        ConcurrentSkipListMap<PriceKey, Offer> offers = getMarket(currencyCode, direction);
+        if (offers == null || minPrice > maxPrice)
+            return Collections.emptyList();
+
+        PriceKey fromKey = new PriceKey(minPrice, "");
+        if (maxPrice == Long.MAX_VALUE)
+            return Collections.unmodifiableCollection(offers.tailMap(fromKey, true).values());
+        else
+            return Collections.unmodifiableCollection(offers.subMap(fromKey, true, new PriceKey(maxPrice + 1, ""), false).values());
+    }
+
+    public int getNumOffers(String currencyCode, Offer.Direction direction) {
+        ConcurrentSkipListMap<PriceKey, Offer> offers = getMarket(currencyCode, direction);
+        return offers != null ? offers.size() : 0;
+    }
+
+    /**
+     * @return The offers matching the query with the best price first. The stream is lazy, so e.g. findFirst only
+     * looks at the offers until the first match.
+     */
+    public Stream<Offer> streamOffers(OfferQuery query) {
+        NavigableMap<PriceKey, Offer> offers = query.getPaymentMethod() != null ?
+                offersByMarketAndPaymentMethod.get(getMarketKey(query.getCurrencyCode(), query.getDirection(),
+                        query.getPaymentMethod().getId())) :
+                getMarket(query.getCurrencyCode(), query.getDirection());
+        if (offers == null)
+            return Stream.empty();
+
+        // We don't iterate over the offers beyond the limit price
+        Long limitPrice = query.getLimitPrice();
+        if (query.getDirection() == Offer.Direction.SELL) {
+            if (limitPrice != null && limitPrice < Long.MAX_VALUE)
+                offers = offers.headMap(new PriceKey(limitPrice + 1, ""), false);
+        } else {
+            if (limitPrice != null)
+                offers = offers.tailMap(new PriceKey(limitPrice, ""), true);
+            offers = offers.descendingMap();
+        }
+        return offers.values().stream().filter(query::matches);
+    }
+
+    public Optional<Offer> findBestOffer(OfferQuery query) {
+        return streamOffers(query).findFirst();
+    }
+
+    public List<Offer> findOffers(OfferQuery query, int maxResults) {
+        return streamOffers(query).limit(maxResults).collect(Collectors.toList());
+    }
+
+    /**
+     * The handler gets called on the UserThread for each offer which gets added and matches the query, e.g. with a
+     * limit price to get notified when an offer better than that price appears.
+     * Offers which are already in the order book are not passed to the handler, use findBestOffer for those.
+     */
+    public Subscription subscribe(OfferQuery query, Consumer<Offer> handler) {
+        Subscription subscription = new Subscription(query, handler);
+        subscriptionsByMarket.computeIfAbsent(getMarketKey(query.getCurrencyCode(), query.getDirection()),
+                key -> new CopyOnWriteArraySet<>()).add(subscription);
+        return subscription;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void add(Offer offer) {
+        // An offer which gets added again replaces the old instance
+        Offer previous = offersById.put(offer.getId(), offer);
+        if (previous != null) {
+            PriceKey previousKey = new PriceKey(previous);
+            getOrCreateMarket(previous).remove(previousKey);
+            getOrCreateMarketAndPaymentMethod(previous).remove(previousKey);
+        }
+
+        PriceKey key = new PriceKey(offer);
+        getOrCreateMarket(offer).put(key, offer);
+        getOrCreateMarketAndPaymentMethod(offer).put(key, offer);
+        if (previous == null || isChanged(previous, offer)) {
+            // The listeners get a changed offer (e.g. another price) as removed and added again, so they don't keep
+            // the old instance and remove it with the values it was added with
+            if (previous != null)
+                listeners.stream().forEach(e -> e.onOfferRemoved(previous));
+            listeners.stream().forEach(e -> e.onOfferAdded(offer));
+
+            CopyOnWriteArraySet<Subscription> subscriptions = subscriptionsByMarket.get(getMarketKey(offer.getCurrencyCode(),
+                    offer.getDirection()));
+            if (subscriptions != null)
+                subscriptions.stream().forEach(e -> e.onOfferAdded(offer));
+        }
+    }
+
+    private void remove(Offer offer) {
+        Offer removed = offersById.remove(offer.getId());
+        if (removed != null) {
+            PriceKey key = new PriceKey(removed);
+            getOrCreateMarket(removed).remove(key);
+            getOrCreateMarketAndPaymentMethod(removed).remove(key);
+            listeners.stream().forEach(e -> e.onOfferRemoved(removed));
+        } else {
+            log.trace("Removed offer was not in the order book. offerId=" + offer.getId());
+        }
+    }
+
+    // The same offer gets added again e.g. when it is republished. It is changed if any value we index changed.
+    private static boolean isChanged(Offer previous, Offer offer) {
+        return previous.getPriceValue() != offer.getPriceValue() ||
+                previous.getAmountValue() != offer.getAmountValue() ||
+                previous.getMinAmountValue() != offer.getMinAmountValue() ||
+                previous.getDirection() != offer.getDirection() ||
+                !previous.getCurrencyCode().equals(offer.getCurrencyCode()) ||
+                !previous.getPaymentMethod().equals(offer.getPaymentMethod());
+    }
+
+    private ConcurrentSkipListMap<PriceKey, Offer> getMarket(String currencyCode, Offer.Direction direction) {
+        return offersByMarket.get(getMarketKey(currencyCode, direction));
+    }
+
+    private ConcurrentSkipListMap<PriceKey, Offer> getOrCreateMarket(Offer offer) {
+        return offersByMarket.computeIfAbsent(getMarketKey(offer.getCurrencyCode(), offer.getDirection()),
+                key -> new ConcurrentSkipListMap<>());
+    }
+
+    private ConcurrentSkipListMap<PriceKey, Offer> getOrCreateMarketAndPaymentMethod(Offer offer) {
+        return offersByMarketAndPaymentMethod.computeIfAbsent(getMarketKey(offer.getCurrencyCode(), offer.getDirection(),
+                offer.getPaymentMethod().getId()), key -> new ConcurrentSkipListMap<>());
+    }
+
+    private static String getMarketKey(String currencyCode, Offer.Direction direction) {
+        return currencyCode + "_" + direction;
+    }
+
+    private static String getMarketKey(String currencyCode, Offer.Direction direction, String paymentMethodId) {
+        return currencyCode + "_" + direction + "_" + paymentMethodId;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Subscription
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public final class Subscription {
+        private final OfferQuery query;
+        private final Consumer<Offer> handler;
+
+        private Subscription(OfferQuery query, Consumer<Offer> handler) {
+            this.query = query;
+            this.handler = handler;
+        }
+
+        public void cancel() {
+            CopyOnWriteArraySet<Subscription> subscriptions = subscriptionsByMarket.get(getMarketKey(query.getCurrencyCode(),
+                    query.getDirection()));
+            if (subscriptions != null)
+                subscriptions.remove(this);
+        }
+
+        private void onOfferAdded(Offer offer) {
+            if (query.matches(offer))
+                handler.accept(offer);
+        }
+    }
+
+    // The price is read once when the offer gets added, so comparisons don't create Fiat objects.
+    // The id makes the key unique for offers with the same price.
+    private static final class PriceKey implements Comparable<PriceKey> {
+        private final long price;
+        private final String offerId;
+
+        PriceKey(Offer offer) {
+            this(offer.getPriceValue(), offer.getId());
+        }
+
+        PriceKey(long price, String offerId) {
+            this.price = price;
+            this.offerId = offerId;
+        }
+
+        @Override
+        public int compareTo(PriceKey other) {
+            int result = Long.compare(price, other.price);
+            return result != 0 ? result : offerId.compareTo(other.offerId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof PriceKey)) return false;
+
+            PriceKey priceKey = (PriceKey) o;
+            return price == priceKey.price && offerId.equals(priceKey.offerId);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(price) + offerId.hashCode();
+        }
+    }
+}
@@ -103,8 +103,8 @@ public class OfferAvailabilityProtocol {
                 }
         );
         taskRunner.addTasks(
-                GetPeerAddress.class,
-                SendOfferAvailabilityRequest.class
+                GetPeerAddress::new,
+                SendOfferAvailabilityRequest::new
         );
         startTimeout();
         taskRunner.run();
@@ -137,7 +137,7 @@ public class OfferAvailabilityProtocol {
                     errorMessageHandler.handleErrorMessage(errorMessage);
                 }
         );
-        taskRunner.addTasks(ProcessOfferAvailabilityResponse.class);
+        taskRunner.addTasks(ProcessOfferAvailabilityResponse::new);
         taskRunner.run();
     }
 
@@ -63,7 +63,7 @@ public class BuyerAsOffererProtocol extends TradeProtocol implements BuyerProtoc
                     },
                     this::handleTaskRunnerFault);
 
-            taskRunner.addTasks(SetupPayoutTxLockTimeReachedListener.class);
+            taskRunner.addTasks(SetupPayoutTxLockTimeReachedListener::new);
             taskRunner.run();
         }
     }
@@ -104,15 +104,15 @@ public class BuyerAsOffererProtocol extends TradeProtocol implements BuyerProtoc
                 () -> handleTaskRunnerSuccess("handleTakeOfferRequest"),
                 this::handleTaskRunnerFault);
         taskRunner.addTasks(
-                ProcessPayDepositRequest.class,
-                VerifyArbitrationSelection.class,
-                VerifyTakerAccount.class,
-                LoadTakeOfferFeeTx.class,
-                CreateAndSignContract.class,
-                CreateAndSignDepositTxAsBuyer.class,
-                InitWaitPeriodForOpenDispute.class,
-                SetupDepositBalanceListener.class,
-                SendPublishDepositTxRequest.class
+                ProcessPayDepositRequest::new,
+                VerifyArbitrationSelection::new,
+                VerifyTakerAccount::new,
+                LoadTakeOfferFeeTx::new,
+                CreateAndSignContract::new,
+                CreateAndSignDepositTxAsBuyer::new,
+                InitWaitPeriodForOpenDispute::new,
+                SetupDepositBalanceListener::new,
+                SendPublishDepositTxRequest::new
         );
         startTimeout();
         taskRunner.run();
@@ -132,8 +132,8 @@ public class BuyerAsOffererProtocol extends TradeProtocol implements BuyerProtoc
                 () -> handleTaskRunnerSuccess("handle DepositTxPublishedMessage"),
                 this::handleTaskRunnerFault);
         taskRunner.addTasks(
-                ProcessDepositTxPublishedMessage.class,
-                AddDepositTxToWallet.class
+                ProcessDepositTxPublishedMessage::new,
+                AddDepositTxToWallet::new
         );
         taskRunner.run();
     }
@@ -152,8 +152,8 @@ public class BuyerAsOffererProtocol extends TradeProtocol implements BuyerProtoc
                 () -> handleTaskRunnerSuccess("onFiatPaymentStarted"),
                 this::handleTaskRunnerFault);
         taskRunner.addTasks(
-                VerifyTakeOfferFeePayment.class,
-                SendFiatTransferStartedMessage.class
+                VerifyTakeOfferFeePayment::new,
+                SendFiatTransferStartedMessage::new
         );
         taskRunner.run();
     }
@@ -176,11 +176,11 @@ public class BuyerAsOffererProtocol extends TradeProtocol implements BuyerProtoc
                 this::handleTaskRunnerFault);
 
         taskRunner.addTasks(
-                ProcessFinalizePayoutTxRequest.class,
-                SignAndFinalizePayoutTx.class,
-                CommitPayoutTx.class,
-                SendPayoutTxFinalizedMessage.class,
-                SetupPayoutTxLockTimeReachedListener.class
+                ProcessFinalizePayoutTxRequest::new,
+                SignAndFinalizePayoutTx::new,
+                CommitPayoutTx::new,
+                SendPayoutTxFinalizedMessage::new,
+                SetupPayoutTxLockTimeReachedListener::new
         );
         taskRunner.run();
     }
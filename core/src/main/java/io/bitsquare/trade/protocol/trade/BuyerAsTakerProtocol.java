@@ -60,7 +60,7 @@ public class BuyerAsTakerProtocol extends TradeProtocol implements BuyerProtocol
                     },
                     this::handleTaskRunnerFault);
 
-            taskRunner.addTasks(SetupPayoutTxLockTimeReachedListener.class);
+            taskRunner.addTasks(SetupPayoutTxLockTimeReachedListener::new);
             taskRunner.run();
         }
     }
@@ -90,12 +90,12 @@ public class BuyerAsTakerProtocol extends TradeProtocol implements BuyerProtocol
                 this::handleTaskRunnerFault);
 
         taskRunner.addTasks(
-                SelectArbitrator.class,
-                LoadCreateOfferFeeTx.class,
-                CreateTakeOfferFeeTx.class,
-                BroadcastTakeOfferFeeTx.class,
-                CreateDepositTxInputsAsBuyer.class,
-                SendPayDepositRequest.class
+                SelectArbitrator::new,
+                LoadCreateOfferFeeTx::new,
+                CreateTakeOfferFeeTx::new,
+                BroadcastTakeOfferFeeTx::new,
+                CreateDepositTxInputsAsBuyer::new,
+                SendPayDepositRequest::new
         );
         startTimeout();
         taskRunner.run();
@@ -115,11 +115,11 @@ public class BuyerAsTakerProtocol extends TradeProtocol implements BuyerProtocol
                 () -> handleTaskRunnerSuccess("PublishDepositTxRequest"),
                 this::handleTaskRunnerFault);
         taskRunner.addTasks(
-                ProcessPublishDepositTxRequest.class,
-                VerifyOffererAccount.class,
-                VerifyAndSignContract.class,
-                SignAndPublishDepositTxAsBuyer.class,
-                SendDepositTxPublishedMessage.class
+                ProcessPublishDepositTxRequest::new,
+                VerifyOffererAccount::new,
+                VerifyAndSignContract::new,
+                SignAndPublishDepositTxAsBuyer::new,
+                SendDepositTxPublishedMessage::new
         );
         taskRunner.run();
     }
@@ -138,8 +138,8 @@ public class BuyerAsTakerProtocol extends TradeProtocol implements BuyerProtocol
                 () -> handleTaskRunnerSuccess("onFiatPaymentStarted"),
                 this::handleTaskRunnerFault);
         taskRunner.addTasks(
-                VerifyOfferFeePayment.class,
-                SendFiatTransferStartedMessage.class
+                VerifyOfferFeePayment::new,
+                SendFiatTransferStartedMessage::new
         );
         taskRunner.run();
     }
@@ -161,11 +161,11 @@ public class BuyerAsTakerProtocol extends TradeProtocol implements BuyerProtocol
                 this::handleTaskRunnerFault);
 
         taskRunner.addTasks(
-                ProcessFinalizePayoutTxRequest.class,
-                SignAndFinalizePayoutTx.class,
-                CommitPayoutTx.class,
-                SendPayoutTxFinalizedMessage.class,
-                SetupPayoutTxLockTimeReachedListener.class
+                ProcessFinalizePayoutTxRequest::new,
+                SignAndFinalizePayoutTx::new,
+                CommitPayoutTx::new,
+                SendPayoutTxFinalizedMessage::new,
+                SetupPayoutTxLockTimeReachedListener::new
         );
         taskRunner.run();
     }
@@ -63,7 +63,7 @@ public class SellerAsTakerProtocol extends TradeProtocol implements SellerProtoc
                     },
                     this::handleTaskRunnerFault);
 
-            taskRunner.addTasks(SetupPayoutTxLockTimeReachedListener.class);
+            taskRunner.addTasks(SetupPayoutTxLockTimeReachedListener::new);
             taskRunner.run();
         }
     }
@@ -99,12 +99,12 @@ public class SellerAsTakerProtocol extends TradeProtocol implements SellerProtoc
                 this::handleTaskRunnerFault);
 
         taskRunner.addTasks(
-                SelectArbitrator.class,
-                LoadCreateOfferFeeTx.class,
-                CreateTakeOfferFeeTx.class,
-                BroadcastTakeOfferFeeTx.class,
-                CreateDepositTxInputsAsSeller.class,
-                SendPayDepositRequest.class
+                SelectArbitrator::new,
+                LoadCreateOfferFeeTx::new,
+                CreateTakeOfferFeeTx::new,
+                BroadcastTakeOfferFeeTx::new,
+                CreateDepositTxInputsAsSeller::new,
+                SendPayDepositRequest::new
         );
         startTimeout();
         taskRunner.run();
@@ -126,11 +126,11 @@ public class SellerAsTakerProtocol extends TradeProtocol implements SellerProtoc
                 this::handleTaskRunnerFault);
 
         taskRunner.addTasks(
-                ProcessPublishDepositTxRequest.class,
-                VerifyOffererAccount.class,
-                VerifyAndSignContract.class,
-                SignAndPublishDepositTxAsSeller.class,
-                SendDepositTxPublishedMessage.class
+                ProcessPublishDepositTxRequest::new,
+                VerifyOffererAccount::new,
+                VerifyAndSignContract::new,
+                SignAndPublishDepositTxAsSeller::new,
+                SendDepositTxPublishedMessage::new
         );
         taskRunner.run();
     }
@@ -148,7 +148,7 @@ public class SellerAsTakerProtocol extends TradeProtocol implements SellerProtoc
                 () -> handleTaskRunnerSuccess("FiatTransferStartedMessage"),
                 this::handleTaskRunnerFault);
 
-        taskRunner.addTasks(ProcessFiatTransferStartedMessage.class);
+        taskRunner.addTasks(ProcessFiatTransferStartedMessage::new);
         taskRunner.run();
     }
 
@@ -167,9 +167,9 @@ public class SellerAsTakerProtocol extends TradeProtocol implements SellerProtoc
                 this::handleTaskRunnerFault);
 
         taskRunner.addTasks(
-                VerifyOfferFeePayment.class,
-                SignPayoutTx.class,
-                SendFinalizePayoutTxRequest.class
+                VerifyOfferFeePayment::new,
+                SignPayoutTx::new,
+                SendFinalizePayoutTxRequest::new
         );
         taskRunner.run();
     }
@@ -187,9 +187,9 @@ public class SellerAsTakerProtocol extends TradeProtocol implements SellerProtoc
                 this::handleTaskRunnerFault);
 
         taskRunner.addTasks(
-                ProcessPayoutTxFinalizedMessage.class,
-                CommitPayoutTx.class,
-                SetupPayoutTxLockTimeReachedListener.class
+                ProcessPayoutTxFinalizedMessage::new,
+                CommitPayoutTx::new,
+                SetupPayoutTxLockTimeReachedListener::new
         );
         taskRunner.run();
     }
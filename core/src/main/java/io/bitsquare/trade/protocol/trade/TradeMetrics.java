@@ -0,0 +1,193 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.trade.protocol.trade;
+
+import io.bitsquare.common.metrics.MetricsRegistry;
+import io.bitsquare.p2p.Message;
+import io.bitsquare.p2p.messaging.SendMailMessageListener;
+import io.bitsquare.p2p.messaging.SendMailboxMessageListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the timeline of the trade protocol per trade: the tasks, the outbound messages (until they arrived or got
+ * stored in the mailbox) and the time we waited for the inbound messages of the peer.
+ * <p>
+ * The durations are also aggregated in the MetricsRegistry by task or message class ("task.*", "message.sent.*",
+ * "message.awaited.*"), so dump() shows which protocol stage dominates the trade latency.
+ * The timelines are only kept in memory for the latest trades.
+ */
+public class TradeMetrics {
+    private static final Logger log = LoggerFactory.getLogger(TradeMetrics.class);
+
+    private static final int MAX_TIMELINES = 50;
+
+    private static final Map<String, List<Event>> timelinesByTradeId = Collections.synchronizedMap(
+            new LinkedHashMap<String, List<Event>>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, List<Event>> eldest) {
+                    return size() > MAX_TIMELINES;
+                }
+            });
+    // Time when our last outbound message arrived, from then on we wait for the peer
+    private static final Map<String, Long> awaitingSinceByTradeId = new ConcurrentHashMap<>();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // The task histograms are recorded by the TaskRunner
+    public static void onTaskCompleted(String tradeId, String taskName, long duration) {
+        addToTimeline(tradeId, "task", taskName, duration);
+    }
+
+    /**
+     * Wraps the listener to measure the time until the message arrived or got stored in the mailbox.
+     */
+    public static SendMailboxMessageListener timeSend(String tradeId, Message message,
+                                                      SendMailboxMessageListener listener) {
+        String messageName = message.getClass().getSimpleName();
+        long startTime = System.nanoTime();
+        return new SendMailboxMessageListener() {
+            @Override
+            public void onArrived() {
+                onSent();
+                listener.onArrived();
+            }
+
+            @Override
+            public void onStoredInMailbox() {
+                onSent();
+                listener.onStoredInMailbox();
+            }
+
+            @Override
+            public void onFault() {
+                addEvent(tradeId, "message.failed", messageName, System.nanoTime() - startTime);
+                listener.onFault();
+            }
+
+            private void onSent() {
+                long now = System.nanoTime();
+                addEvent(tradeId, "message.sent", messageName, now - startTime);
+                awaitingSinceByTradeId.put(tradeId, now);
+            }
+        };
+    }
+
+    /**
+     * Wraps the listener to measure the time until the message arrived.
+     */
+    public static SendMailMessageListener timeSend(String tradeId, Message message, SendMailMessageListener listener) {
+        String messageName = message.getClass().getSimpleName();
+        long startTime = System.nanoTime();
+        return new SendMailMessageListener() {
+            @Override
+            public void onArrived() {
+                long now = System.nanoTime();
+                addEvent(tradeId, "message.sent", messageName, now - startTime);
+                awaitingSinceByTradeId.put(tradeId, now);
+                listener.onArrived();
+            }
+
+            @Override
+            public void onFault() {
+                addEvent(tradeId, "message.failed", messageName, System.nanoTime() - startTime);
+                listener.onFault();
+            }
+        };
+    }
+
+    /**
+     * Called for inbound trade messages received directly (not from the mailbox).
+     */
+    public static void onMessageReceived(String tradeId, Message message) {
+        Long awaitingSince = awaitingSinceByTradeId.remove(tradeId);
+        if (awaitingSince != null)
+            addEvent(tradeId, "message.awaited", message.getClass().getSimpleName(), System.nanoTime() - awaitingSince);
+    }
+
+    public static void onTradeCompleted(String tradeId) {
+        awaitingSinceByTradeId.remove(tradeId);
+    }
+
+    /**
+     * @return The histograms sorted by total time and the timelines of the latest trades.
+     */
+    public static String dump() {
+        StringBuilder sb = new StringBuilder("\n\n------------------------------------------------------------\n");
+        sb.append("Trade protocol latency (sorted by total time):\n");
+        MetricsRegistry.getHistograms().values().stream()
+                .filter(histogram -> histogram.name.startsWith("task.") || histogram.name.startsWith("message."))
+                .sorted((o1, o2) -> Long.compare(o2.getTotalMicros(), o1.getTotalMicros()))
+                .forEach(histogram -> sb.append(histogram).append("\n"));
+
+        SimpleDateFormat dateFormat = new SimpleDateFormat("HH:mm:ss.SSS");
+        synchronized (timelinesByTradeId) {
+            timelinesByTradeId.entrySet().stream().forEach(entry -> {
+                sb.append("\nTimeline of trade ").append(entry.getKey()).append(":\n");
+                synchronized (entry.getValue()) {
+                    entry.getValue().stream().forEach(event -> sb.append(dateFormat.format(new Date(event.startTime)))
+                            .append(" ").append(event.type).append(" ").append(event.name)
+                            .append(" ").append(TimeUnit.NANOSECONDS.toMillis(event.duration)).append("ms\n"));
+                }
+            });
+        }
+        sb.append("------------------------------------------------------------\n");
+        return sb.toString();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static void addEvent(String tradeId, String type, String name, long duration) {
+        MetricsRegistry.getHistogram(type + "." + name).record(duration, TimeUnit.NANOSECONDS);
+        addToTimeline(tradeId, type, name, duration);
+    }
+
+    private static void addToTimeline(String tradeId, String type, String name, long duration) {
+        long startTime = System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(duration);
+        List<Event> timeline = timelinesByTradeId.computeIfAbsent(tradeId, k -> Collections.synchronizedList(new ArrayList<>()));
+        timeline.add(new Event(type, name, startTime, duration));
+        log.trace("Trade {}: {} {} took {}ms", tradeId, type, name, TimeUnit.NANOSECONDS.toMillis(duration));
+    }
+
+    private static class Event {
+        final String type;
+        final String name;
+        // Wall clock time in ms
+        final long startTime;
+        // Duration in ns
+        final long duration;
+
+        Event(String type, String name, long startTime, long duration) {
+            this.type = type;
+            this.name = name;
+            this.startTime = startTime;
+            this.duration = duration;
+        }
+    }
+}
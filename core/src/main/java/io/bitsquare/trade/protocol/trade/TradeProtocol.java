@@ -65,6 +65,7 @@ public abstract class TradeProtocol {
                     nonEmptyStringOf(tradeMessage.tradeId);
 
                     if (tradeMessage.tradeId.equals(processModel.getId())) {
+                        TradeMetrics.onMessageReceived(tradeMessage.tradeId, tradeMessage);
                         doHandleDecryptedMessage(tradeMessage, peerAddress);
                     }
                 }
@@ -90,6 +91,7 @@ public abstract class TradeProtocol {
     private void cleanup() {
         log.debug("cleanup " + this);
         stopTimeout();
+        TradeMetrics.onTradeCompleted(processModel.getId());
 
         processModel.getP2PService().removeDecryptedMailListener(decryptedMailListener);
 
@@ -118,7 +120,7 @@ public abstract class TradeProtocol {
                     },
                     this::handleTaskRunnerFault);
 
-            taskRunner.addTasks(SetupPayoutTxLockTimeReachedListener.class);
+            taskRunner.addTasks(SetupPayoutTxLockTimeReachedListener::new);
             taskRunner.run();
         }
     }
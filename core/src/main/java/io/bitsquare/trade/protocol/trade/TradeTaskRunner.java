@@ -22,9 +22,61 @@ import io.bitsquare.common.handlers.ResultHandler;
 import io.bitsquare.common.taskrunner.TaskRunner;
 import io.bitsquare.trade.Trade;
 
+/**
+ * Changes of the trade done by the tasks are persisted once at the end of the task sequence (or at checkpoint tasks)
+ * instead of at each setter call. Before a long running task (e.g. waiting for the payout tx lock time) the changes
+ * are persisted and the trade persists its changes directly again while the task is waiting.
+ */
 public class TradeTaskRunner extends TaskRunner<Trade> {
+    private final Trade trade;
+    private boolean isPersistenceDeferred;
 
     public TradeTaskRunner(Trade sharedModel, ResultHandler resultHandler, ErrorMessageHandler errorMessageHandler) {
-        super(sharedModel, (Class<Trade>) sharedModel.getClass().getSuperclass().getSuperclass(), resultHandler, errorMessageHandler);
+        super(sharedModel, resultHandler, errorMessageHandler);
+        this.trade = sharedModel;
+    }
+
+    @Override
+    public void run() {
+        if (!isPersistenceDeferred) {
+            isPersistenceDeferred = true;
+            trade.deferPersistence();
+        }
+        super.run();
+    }
+
+    @Override
+    public void cancel() {
+        super.cancel();
+        if (isPersistenceDeferred) {
+            endDeferredPersistence();
+            trade.persist();
+        }
+    }
+
+    @Override
+    protected void onFinished() {
+        endDeferredPersistence();
+    }
+
+    @Override
+    protected void onLongRunningTaskStarted() {
+        trade.markChanged();
+        endDeferredPersistence();
+        trade.persist();
+    }
+
+    @Override
+    protected void onTaskCompleted(String taskName, long duration) {
+        // The task might have changed the process model directly
+        trade.markChanged();
+        TradeMetrics.onTaskCompleted(trade.getId(), taskName, duration);
+    }
+
+    private void endDeferredPersistence() {
+        if (isPersistenceDeferred) {
+            isPersistenceDeferred = false;
+            trade.endDeferredPersistence();
+        }
     }
 }
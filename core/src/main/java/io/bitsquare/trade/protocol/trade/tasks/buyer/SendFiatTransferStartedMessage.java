@@ -20,6 +20,7 @@ package io.bitsquare.trade.protocol.trade.tasks.buyer;
 import io.bitsquare.common.taskrunner.TaskRunner;
 import io.bitsquare.p2p.messaging.SendMailboxMessageListener;
 import io.bitsquare.trade.Trade;
+import io.bitsquare.trade.protocol.trade.TradeMetrics;
 import io.bitsquare.trade.protocol.trade.messages.FiatTransferStartedMessage;
 import io.bitsquare.trade.protocol.trade.tasks.TradeTask;
 import org.slf4j.Logger;
@@ -37,15 +38,16 @@ public class SendFiatTransferStartedMessage extends TradeTask {
         try {
             runInterceptHook();
 
+            FiatTransferStartedMessage message = new FiatTransferStartedMessage(
+                    processModel.getId(),
+                    processModel.getAddressEntry().getAddressString(),
+                    processModel.getMyAddress()
+            );
             processModel.getP2PService().sendEncryptedMailboxMessage(
                     trade.getTradingPeerAddress(),
                     processModel.tradingPeer.getPubKeyRing(),
-                    new FiatTransferStartedMessage(
-                            processModel.getId(),
-                            processModel.getAddressEntry().getAddressString(),
-                            processModel.getMyAddress()
-                    ),
-                    new SendMailboxMessageListener() {
+                    message,
+                    TradeMetrics.timeSend(processModel.getId(), message, new SendMailboxMessageListener() {
                         @Override
                         public void onArrived() {
                             log.trace("Message arrived at peer.");
@@ -65,7 +67,7 @@ public class SendFiatTransferStartedMessage extends TradeTask {
                             appendToErrorMessage("FiatTransferStartedMessage sending failed");
                             failed();
                         }
-                    }
+                    })
             );
         } catch (Throwable t) {
             failed(t);
@@ -20,6 +20,7 @@ package io.bitsquare.trade.protocol.trade.tasks.buyer;
 import io.bitsquare.common.taskrunner.TaskRunner;
 import io.bitsquare.p2p.messaging.SendMailboxMessageListener;
 import io.bitsquare.trade.Trade;
+import io.bitsquare.trade.protocol.trade.TradeMetrics;
 import io.bitsquare.trade.protocol.trade.messages.PayoutTxFinalizedMessage;
 import io.bitsquare.trade.protocol.trade.tasks.TradeTask;
 import org.slf4j.Logger;
@@ -37,15 +38,16 @@ public class SendPayoutTxFinalizedMessage extends TradeTask {
         try {
             runInterceptHook();
             if (trade.getPayoutTx() != null) {
+                PayoutTxFinalizedMessage message = new PayoutTxFinalizedMessage(
+                        processModel.getId(),
+                        trade.getPayoutTx().bitcoinSerialize(),
+                        processModel.getMyAddress()
+                );
                 processModel.getP2PService().sendEncryptedMailboxMessage(
                         trade.getTradingPeerAddress(),
                         processModel.tradingPeer.getPubKeyRing(),
-                        new PayoutTxFinalizedMessage(
-                                processModel.getId(),
-                                trade.getPayoutTx().bitcoinSerialize(),
-                                processModel.getMyAddress()
-                        ),
-                        new SendMailboxMessageListener() {
+                        message,
+                        TradeMetrics.timeSend(processModel.getId(), message, new SendMailboxMessageListener() {
                             @Override
                             public void onArrived() {
                                 log.trace("Message arrived at peer.");
@@ -65,7 +67,7 @@ public class SendPayoutTxFinalizedMessage extends TradeTask {
                                 appendToErrorMessage("PayoutTxFinalizedMessage sending failed");
                                 failed();
                             }
-                        }
+                        })
                 );
             } else {
                 log.error("trade.getPayoutTx() = " + trade.getPayoutTx());
@@ -36,6 +36,12 @@ public class SignAndPublishDepositTxAsBuyer extends TradeTask {
         super(taskHandler, trade);
     }
 
+    // The deposit tx gets published, so we persist directly after that task
+    @Override
+    protected boolean isCheckpoint() {
+        return true;
+    }
+
     @Override
     protected void run() {
         try {
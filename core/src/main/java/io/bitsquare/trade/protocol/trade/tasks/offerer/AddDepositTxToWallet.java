@@ -31,6 +31,12 @@ public class AddDepositTxToWallet extends TradeTask {
         super(taskHandler, trade);
     }
 
+    // The deposit tx is committed to the wallet, so we persist directly after that task
+    @Override
+    protected boolean isCheckpoint() {
+        return true;
+    }
+
     @Override
     protected void run() {
         try {
@@ -20,6 +20,7 @@ package io.bitsquare.trade.protocol.trade.tasks.offerer;
 import io.bitsquare.common.taskrunner.TaskRunner;
 import io.bitsquare.p2p.messaging.SendMailMessageListener;
 import io.bitsquare.trade.Trade;
+import io.bitsquare.trade.protocol.trade.TradeMetrics;
 import io.bitsquare.trade.protocol.trade.messages.PublishDepositTxRequest;
 import io.bitsquare.trade.protocol.trade.tasks.TradeTask;
 import org.slf4j.Logger;
@@ -55,7 +56,7 @@ public class SendPublishDepositTxRequest extends TradeTask {
                     trade.getTradingPeerAddress(),
                     processModel.tradingPeer.getPubKeyRing(),
                     tradeMessage,
-                    new SendMailMessageListener() {
+                    TradeMetrics.timeSend(processModel.getId(), tradeMessage, new SendMailMessageListener() {
                         @Override
                         public void onArrived() {
                             log.trace("Message arrived at peer.");
@@ -67,7 +68,7 @@ public class SendPublishDepositTxRequest extends TradeTask {
                             appendToErrorMessage("PublishDepositTxRequest sending failed");
                             failed();
                         }
-                    }
+                    })
             );
         } catch (Throwable t) {
             failed(t);
@@ -20,6 +20,7 @@ package io.bitsquare.trade.protocol.trade.tasks.seller;
 import io.bitsquare.common.taskrunner.TaskRunner;
 import io.bitsquare.p2p.messaging.SendMailboxMessageListener;
 import io.bitsquare.trade.Trade;
+import io.bitsquare.trade.protocol.trade.TradeMetrics;
 import io.bitsquare.trade.protocol.trade.messages.FinalizePayoutTxRequest;
 import io.bitsquare.trade.protocol.trade.tasks.TradeTask;
 import org.slf4j.Logger;
@@ -49,7 +50,7 @@ public class SendFinalizePayoutTxRequest extends TradeTask {
                         trade.getTradingPeerAddress(),
                         processModel.tradingPeer.getPubKeyRing(),
                         message,
-                        new SendMailboxMessageListener() {
+                        TradeMetrics.timeSend(processModel.getId(), message, new SendMailboxMessageListener() {
                             @Override
                             public void onArrived() {
                                 log.trace("Message arrived at peer.");
@@ -69,7 +70,7 @@ public class SendFinalizePayoutTxRequest extends TradeTask {
                                 appendToErrorMessage("FinalizePayoutTxRequest sending failed");
                                 failed();
                             }
-                        }
+                        })
                 );
             } else {
                 log.error("trade.getTradingPeerAddress() = " + trade.getTradingPeerAddress());
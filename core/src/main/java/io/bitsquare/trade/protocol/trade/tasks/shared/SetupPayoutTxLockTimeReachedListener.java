@@ -38,6 +38,12 @@ public class SetupPayoutTxLockTimeReachedListener extends TradeTask {
         super(taskHandler, trade);
     }
 
+    // Waits until the block of the lock time, which can take days
+    @Override
+    protected boolean isLongRunning() {
+        return true;
+    }
+
     @Override
     protected void run() {
         try {
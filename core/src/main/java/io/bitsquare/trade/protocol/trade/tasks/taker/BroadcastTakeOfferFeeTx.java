@@ -33,6 +33,12 @@ public class BroadcastTakeOfferFeeTx extends TradeTask {
         super(taskHandler, trade);
     }
 
+    // The fee tx gets broadcast, so we persist directly after that task
+    @Override
+    protected boolean isCheckpoint() {
+        return true;
+    }
+
     @Override
     protected void run() {
         try {
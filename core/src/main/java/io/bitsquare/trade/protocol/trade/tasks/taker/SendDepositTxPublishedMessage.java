@@ -20,6 +20,7 @@ package io.bitsquare.trade.protocol.trade.tasks.taker;
 import io.bitsquare.common.taskrunner.TaskRunner;
 import io.bitsquare.p2p.messaging.SendMailboxMessageListener;
 import io.bitsquare.trade.Trade;
+import io.bitsquare.trade.protocol.trade.TradeMetrics;
 import io.bitsquare.trade.protocol.trade.messages.DepositTxPublishedMessage;
 import io.bitsquare.trade.protocol.trade.tasks.TradeTask;
 import org.slf4j.Logger;
@@ -45,7 +46,7 @@ public class SendDepositTxPublishedMessage extends TradeTask {
                         trade.getTradingPeerAddress(),
                         processModel.tradingPeer.getPubKeyRing(),
                         tradeMessage,
-                        new SendMailboxMessageListener() {
+                        TradeMetrics.timeSend(processModel.getId(), tradeMessage, new SendMailboxMessageListener() {
                             @Override
                             public void onArrived() {
                                 log.trace("Message arrived at peer.");
@@ -65,7 +66,7 @@ public class SendDepositTxPublishedMessage extends TradeTask {
                                 appendToErrorMessage("DepositTxPublishedMessage sending failed");
                                 failed();
                             }
-                        }
+                        })
                 );
             } else {
                 log.error("trade.getDepositTx() = " + trade.getDepositTx());
@@ -20,6 +20,7 @@ package io.bitsquare.trade.protocol.trade.tasks.taker;
 import io.bitsquare.common.taskrunner.TaskRunner;
 import io.bitsquare.p2p.messaging.SendMailboxMessageListener;
 import io.bitsquare.trade.Trade;
+import io.bitsquare.trade.protocol.trade.TradeMetrics;
 import io.bitsquare.trade.protocol.trade.messages.PayDepositRequest;
 import io.bitsquare.trade.protocol.trade.tasks.TradeTask;
 import org.slf4j.Logger;
@@ -58,7 +59,7 @@ public class SendPayDepositRequest extends TradeTask {
                         trade.getTradingPeerAddress(),
                         processModel.tradingPeer.getPubKeyRing(),
                         payDepositRequest,
-                        new SendMailboxMessageListener() {
+                        TradeMetrics.timeSend(processModel.getId(), payDepositRequest, new SendMailboxMessageListener() {
                             @Override
                             public void onArrived() {
                                 log.trace("Message arrived at peer.");
@@ -76,7 +77,7 @@ public class SendPayDepositRequest extends TradeTask {
                                 appendToErrorMessage("PayDepositRequest sending failed");
                                 failed();
                             }
-                        }
+                        })
                 );
             } else {
                 log.error("processModel.getTakeOfferFeeTx() = " + processModel.getTakeOfferFeeTx());
@@ -57,6 +57,8 @@ public class User implements Serializable {
     // Transient immutable fields
     transient final private Storage<User> storage;
     transient private Set<TradeCurrency> tradeCurrenciesInPaymentAccounts;
+    // Built lazily, reset when the payment accounts or the accepted arbitrators change
+    transient private UserCapabilities capabilities;
 
     // Persisted fields
     private String accountID;
@@ -112,6 +114,7 @@ public class User implements Serializable {
         paymentAccountsAsObservable.addListener((SetChangeListener<PaymentAccount>) change -> {
             paymentAccounts = new HashSet<>(paymentAccountsAsObservable);
             tradeCurrenciesInPaymentAccounts = paymentAccounts.stream().flatMap(e -> e.getTradeCurrencies().stream()).collect(Collectors.toSet());
+            capabilities = null;
             storage.queueUpForSave();
         });
         currentPaymentAccountProperty.addListener((ov) -> {
@@ -175,6 +178,7 @@ public class User implements Serializable {
     public void addAcceptedArbitrator(Arbitrator arbitrator) {
         if (!acceptedArbitrators.contains(arbitrator) && !isMyOwnRegisteredArbitrator(arbitrator)) {
             acceptedArbitrators.add(arbitrator);
+            capabilities = null;
             storage.queueUpForSave();
         }
     }
@@ -185,9 +189,16 @@ public class User implements Serializable {
 
     public void removeAcceptedArbitrator(Arbitrator arbitrator) {
         acceptedArbitrators.remove(arbitrator);
+        capabilities = null;
         storage.queueUpForSave();
     }
 
+    // Drops the cached capability results of an offer which has been removed from the offer book
+    public void onOfferRemoved(String offerId) {
+        if (capabilities != null)
+            capabilities.onOfferRemoved(offerId);
+    }
+
     public void setRegisteredArbitrator(Arbitrator arbitrator) {
         this.registeredArbitrator = arbitrator;
         storage.queueUpForSave();
@@ -247,6 +258,12 @@ public class User implements Serializable {
         return acceptedArbitrators;
     }
 
+    public UserCapabilities getCapabilities() {
+        if (capabilities == null)
+            capabilities = new UserCapabilities(paymentAccounts, acceptedArbitrators);
+        return capabilities;
+    }
+
     public List<Address> getAcceptedArbitratorAddresses() {
         return acceptedArbitrators.stream().map(Arbitrator::getArbitratorAddress).collect(Collectors.toList());
     }
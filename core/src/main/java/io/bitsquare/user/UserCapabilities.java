@@ -0,0 +1,156 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.user;
+
+import io.bitsquare.arbitration.Arbitrator;
+import io.bitsquare.locale.TradeCurrency;
+import io.bitsquare.p2p.Address;
+import io.bitsquare.payment.PaymentAccount;
+import io.bitsquare.payment.PaymentMethod;
+import io.bitsquare.payment.SepaAccount;
+import io.bitsquare.trade.offer.Offer;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * Index of what the user can trade, built once from the payment accounts and the accepted arbitrators.
+ * Checking if an offer matches is a few hash lookups and the results are cached per offer id.
+ * The User creates a new instance whenever the payment accounts or the accepted arbitrators change, so the cached
+ * results are dropped as well. The results of a single offer are dropped when the offer gets removed from the offer
+ * book (see onOfferRemoved).
+ * <p>
+ * Not thread safe, used only from the UserThread.
+ */
+public class UserCapabilities {
+    // All accounts by payment method and currency
+    private final Set<Key> paymentMethodAndCurrency = new HashSet<>();
+    // Accounts which are not restricted to certain countries
+    private final Set<Key> unrestrictedPaymentMethodAndCurrency = new HashSet<>();
+    // Country restricted (SEPA) accounts by payment method, currency and accepted country
+    private final Set<Key> paymentMethodCurrencyAndCountry = new HashSet<>();
+    private final Set<Address> acceptedArbitratorAddresses = new HashSet<>();
+
+    private final Map<String, Boolean> paymentAccountValidByOfferId = new HashMap<>();
+    private final Map<String, Boolean> matchingArbitratorByOfferId = new HashMap<>();
+
+    public UserCapabilities(Collection<PaymentAccount> paymentAccounts, Collection<Arbitrator> acceptedArbitrators) {
+        for (PaymentAccount paymentAccount : paymentAccounts) {
+            PaymentMethod paymentMethod = paymentAccount.getPaymentMethod();
+            for (TradeCurrency tradeCurrency : paymentAccount.getTradeCurrencies()) {
+                String currencyCode = tradeCurrency.getCode();
+                Key key = new Key(paymentMethod, currencyCode, null);
+                paymentMethodAndCurrency.add(key);
+                if (paymentAccount instanceof SepaAccount) {
+                    for (String countryCode : ((SepaAccount) paymentAccount).getAcceptedCountryCodes())
+                        paymentMethodCurrencyAndCountry.add(new Key(paymentMethod, currencyCode, countryCode));
+                } else {
+                    unrestrictedPaymentMethodAndCurrency.add(key);
+                }
+            }
+        }
+
+        for (Arbitrator arbitrator : acceptedArbitrators)
+            acceptedArbitratorAddresses.add(arbitrator.getArbitratorAddress());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @return True if the user has a payment account with the payment method and currency of the offer which accepts
+     * at least one of the countries accepted by the offer.
+     */
+    public boolean isPaymentAccountValidForOffer(Offer offer) {
+        return paymentAccountValidByOfferId.computeIfAbsent(offer.getId(), id -> computePaymentAccountValidForOffer(offer));
+    }
+
+    public boolean hasMatchingArbitrator(Offer offer) {
+        return matchingArbitratorByOfferId.computeIfAbsent(offer.getId(), id -> computeMatchingArbitrator(offer));
+    }
+
+    public void onOfferRemoved(String offerId) {
+        paymentAccountValidByOfferId.remove(offerId);
+        matchingArbitratorByOfferId.remove(offerId);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private boolean computePaymentAccountValidForOffer(Offer offer) {
+        PaymentMethod paymentMethod = offer.getPaymentMethod();
+        String currencyCode = offer.getCurrencyCode();
+        Key key = new Key(paymentMethod, currencyCode, null);
+        List<String> offerAcceptedCountryCodes = offer.getAcceptedCountryCodes();
+        if (offerAcceptedCountryCodes == null)
+            return paymentMethodAndCurrency.contains(key);
+
+        if (unrestrictedPaymentMethodAndCurrency.contains(key))
+            return true;
+
+        for (String countryCode : offerAcceptedCountryCodes) {
+            if (paymentMethodCurrencyAndCountry.contains(new Key(paymentMethod, currencyCode, countryCode)))
+                return true;
+        }
+        return false;
+    }
+
+    private boolean computeMatchingArbitrator(Offer offer) {
+        for (Address address : offer.getArbitratorAddresses()) {
+            if (acceptedArbitratorAddresses.contains(address))
+                return true;
+        }
+        return false;
+    }
+
+    private static final class Key {
+        private final PaymentMethod paymentMethod;
+        private final String currencyCode;
+        @Nullable
+        private final String countryCode;
+
+        Key(PaymentMethod paymentMethod, String currencyCode, @Nullable String countryCode) {
+            this.paymentMethod = paymentMethod;
+            this.currencyCode = currencyCode;
+            this.countryCode = countryCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            Key key = (Key) o;
+            return paymentMethod.equals(key.paymentMethod)
+                    && currencyCode.equals(key.currencyCode)
+                    && Objects.equals(countryCode, key.countryCode);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = paymentMethod.hashCode();
+            result = 31 * result + currencyCode.hashCode();
+            result = 31 * result + (countryCode != null ? countryCode.hashCode() : 0);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.btc;
+
+import org.bitcoinj.core.*;
+import org.bitcoinj.params.UnitTestParams;
+import org.bitcoinj.testing.FakeTxBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+public class AddressIndexTest {
+    private NetworkParameters params;
+    private Wallet wallet;
+    private Address address1, address2, foreignAddress, unusedAddress;
+    private Transaction receivingTx, spendingTx;
+
+    @Before
+    public void setup() throws VerificationException {
+        params = UnitTestParams.get();
+        // The context of the thread would be created for the params of the first wallet otherwise
+        Context.propagate(new Context(params));
+        wallet = new Wallet(params);
+        address1 = wallet.freshReceiveAddress();
+        address2 = wallet.freshReceiveAddress();
+        unusedAddress = wallet.freshReceiveAddress();
+        foreignAddress = new ECKey().toAddress(params);
+
+        receivingTx = FakeTxBuilder.createFakeTx(params, Coin.COIN, address1);
+        wallet.receivePending(receivingTx, null);
+
+        // Spends the output of address1 to a foreign address and address2 (change)
+        spendingTx = new Transaction(params);
+        spendingTx.addInput(receivingTx.getOutput(0));
+        spendingTx.addOutput(Coin.parseCoin("0.3"), foreignAddress);
+        spendingTx.addOutput(Coin.parseCoin("0.6"), address2);
+        wallet.commitTx(spendingTx);
+    }
+
+    @Test
+    public void testRebuild() {
+        AddressIndex addressIndex = new AddressIndex(params);
+        addressIndex.rebuild(wallet);
+        assertSameAsFullScan(addressIndex);
+
+        assertEquals(new HashSet<>(Arrays.asList(receivingTx, spendingTx)),
+                new HashSet<>(addressIndex.getTransactions(address1)));
+        assertEquals(new HashSet<>(Arrays.asList(address1, address2, foreignAddress)),
+                addressIndex.getAddresses(spendingTx));
+        assertEquals(Coin.ZERO, addressIndex.getBalance(wallet, address1));
+        assertEquals(Coin.parseCoin("0.6"), addressIndex.getBalance(wallet, address2));
+    }
+
+    @Test
+    public void testUpdate() throws VerificationException {
+        // Updated from the wallet events like in the WalletService
+        AddressIndex addressIndex = new AddressIndex(params);
+        addressIndex.rebuild(new Wallet(params));
+        addressIndex.update(receivingTx);
+        addressIndex.update(spendingTx);
+        addressIndex.invalidateBalances();
+        assertSameAsFullScan(addressIndex);
+
+        Transaction tx = FakeTxBuilder.createFakeTx(params, Coin.parseCoin("0.5"), address2);
+        wallet.receivePending(tx, null);
+        // The balances are cached until the next wallet change
+        assertEquals(Coin.parseCoin("0.6"), addressIndex.getBalance(wallet, address2));
+        addressIndex.update(tx);
+        addressIndex.invalidateBalances();
+        assertSameAsFullScan(addressIndex);
+        assertEquals(Coin.parseCoin("1.1"), addressIndex.getBalance(wallet, address2));
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void assertSameAsFullScan(AddressIndex addressIndex) {
+        for (Address address : Arrays.asList(address1, address2, foreignAddress, unusedAddress)) {
+            assertEquals(getTransactionsByFullScan(address), new HashSet<>(addressIndex.getTransactions(address)));
+            assertEquals(getBalanceByFullScan(address), addressIndex.getBalance(wallet, address));
+        }
+    }
+
+    // The lookups of the WalletService before the AddressIndex was used
+
+    private Set<Transaction> getTransactionsByFullScan(Address address) {
+        Set<Transaction> transactions = new HashSet<>();
+        for (Transaction tx : wallet.getTransactions(true)) {
+            List<TransactionOutput> outputs = new ArrayList<>(tx.getOutputs());
+            for (TransactionInput input : tx.getInputs()) {
+                if (input.getConnectedOutput() != null)
+                    outputs.add(input.getConnectedOutput());
+            }
+            for (TransactionOutput output : outputs) {
+                if (address.equals(getAddress(output)))
+                    transactions.add(tx);
+            }
+        }
+        return transactions;
+    }
+
+    private Coin getBalanceByFullScan(Address address) {
+        Coin balance = Coin.ZERO;
+        for (TransactionOutput output : wallet.calculateAllSpendCandidates()) {
+            if (address.equals(getAddress(output)))
+                balance = balance.add(output.getValue());
+        }
+        return balance;
+    }
+
+    private Address getAddress(TransactionOutput output) {
+        if (output.getScriptPubKey().isSentToAddress() || output.getScriptPubKey().isPayToScriptHash())
+            return output.getScriptPubKey().getToAddress(params);
+        else
+            return null;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.btc;
+
+import io.bitsquare.btc.listeners.AddressConfidenceListener;
+import io.bitsquare.btc.listeners.BalanceListener;
+import io.bitsquare.btc.listeners.TxConfidenceListener;
+import io.bitsquare.common.UserThread;
+import io.bitsquare.user.Preferences;
+import org.bitcoinj.core.*;
+import org.bitcoinj.testing.FakeTxBuilder;
+import org.bitcoinj.utils.Threading;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class WalletServiceTest {
+    private Executor userThreadExecutor;
+    private Executor bitcoinjUserThread;
+    // Tasks queued at the UserThread, executed by runUserThreadTasks
+    private final List<Runnable> userThreadTasks = new ArrayList<>();
+
+    private NetworkParameters params;
+    private Wallet wallet;
+    private WalletService walletService;
+    private Address address1, address2;
+
+    @Before
+    public void setup() {
+        userThreadExecutor = UserThread.getExecutor();
+        UserThread.setExecutor(userThreadTasks::add);
+        // The wallet events are delivered on the calling thread
+        bitcoinjUserThread = Threading.USER_THREAD;
+        Threading.USER_THREAD = Threading.SAME_THREAD;
+
+        Preferences preferences = mock(Preferences.class);
+        when(preferences.getBitcoinNetwork()).thenReturn(BitcoinNetwork.REGTEST);
+        walletService = new WalletService(RegTestHost.LOCALHOST, mock(TradeWalletService.class),
+                mock(AddressEntryList.class), mock(UserAgent.class), new File("."), "test", preferences);
+
+        params = BitcoinNetwork.REGTEST.getParameters();
+        // The context of the thread would be created for the params of the first wallet otherwise
+        Context.propagate(new Context(params));
+        wallet = new Wallet(params);
+        address1 = wallet.freshReceiveAddress();
+        address2 = wallet.freshReceiveAddress();
+        walletService.initWallet(wallet);
+    }
+
+    @After
+    public void tearDown() {
+        UserThread.setExecutor(userThreadExecutor);
+        Threading.USER_THREAD = bitcoinjUserThread;
+    }
+
+    @Test
+    public void testBalanceListeners() throws VerificationException {
+        List<Coin> balances1 = new ArrayList<>();
+        List<Coin> balances2 = new ArrayList<>();
+        List<Coin> walletBalances = new ArrayList<>();
+        walletService.addBalanceListener(new BalanceListener(address1) {
+            @Override
+            public void onBalanceChanged(Coin balance) {
+                balances1.add(balance);
+            }
+        });
+        BalanceListener balanceListener2 = walletService.addBalanceListener(new BalanceListener(address2) {
+            @Override
+            public void onBalanceChanged(Coin balance) {
+                balances2.add(balance);
+            }
+        });
+        walletService.addBalanceListener(new BalanceListener() {
+            @Override
+            public void onBalanceChanged(Coin balance) {
+                walletBalances.add(balance);
+            }
+        });
+
+        // A burst of events leads to one notification with the final balance, only for the affected addresses
+        wallet.receivePending(FakeTxBuilder.createFakeTx(params, Coin.COIN, address1), null);
+        wallet.receivePending(FakeTxBuilder.createFakeTx(params, Coin.parseCoin("0.5"), address1), null);
+        runUserThreadTasks();
+        assertEquals(Collections.singletonList(Coin.parseCoin("1.5")), balances1);
+        assertEquals(Collections.emptyList(), balances2);
+        assertEquals(1, walletBalances.size());
+
+        walletService.removeBalanceListener(balanceListener2);
+        wallet.receivePending(FakeTxBuilder.createFakeTx(params, Coin.COIN, address2), null);
+        runUserThreadTasks();
+        assertEquals(1, balances1.size());
+        assertEquals(Collections.emptyList(), balances2);
+        assertEquals(2, walletBalances.size());
+        assertEquals(Coin.COIN, walletService.getBalanceForAddress(address2));
+    }
+
+    @Test
+    public void testConfidenceListeners() throws Exception {
+        List<String> events = new ArrayList<>();
+        Transaction tx = FakeTxBuilder.createFakeTx(params, Coin.COIN, address1);
+        walletService.addAddressConfidenceListener(new AddressConfidenceListener(address1) {
+            @Override
+            public void onTransactionConfidenceChanged(TransactionConfidence confidence) {
+                events.add("address1");
+            }
+        });
+        walletService.addAddressConfidenceListener(new AddressConfidenceListener(address2) {
+            @Override
+            public void onTransactionConfidenceChanged(TransactionConfidence confidence) {
+                events.add("address2");
+            }
+        });
+        walletService.addTxConfidenceListener(new TxConfidenceListener(tx.getHashAsString()) {
+            @Override
+            public void onTransactionConfidenceChanged(TransactionConfidence confidence) {
+                events.add("tx");
+            }
+        });
+        walletService.addTxConfidenceListener(new TxConfidenceListener(Sha256Hash.ZERO_HASH.toString()) {
+            @Override
+            public void onTransactionConfidenceChanged(TransactionConfidence confidence) {
+                events.add("otherTx");
+            }
+        });
+
+        wallet.receivePending(tx, null);
+        events.clear();
+        Transaction walletTx = wallet.getTransaction(tx.getHash());
+        walletTx.getConfidence().markBroadcastBy(new PeerAddress(InetAddress.getLocalHost()));
+        walletTx.getConfidence().queueListeners(TransactionConfidence.Listener.ChangeReason.SEEN_PEERS);
+        // Only the listeners of the address and the tx of the transaction get called
+        assertEquals(Arrays.asList("address1", "tx"), events);
+
+        assertEquals(walletTx.getConfidence(), walletService.getConfidenceForAddress(address1));
+        assertEquals(walletTx.getConfidence(), walletService.getConfidenceForTxId(tx.getHashAsString()));
+    }
+
+    private void runUserThreadTasks() {
+        List<Runnable> tasks = new ArrayList<>(userThreadTasks);
+        userThreadTasks.clear();
+        tasks.stream().forEach(Runnable::run);
+    }
+}
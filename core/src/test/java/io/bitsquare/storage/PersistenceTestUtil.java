@@ -0,0 +1,37 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.storage;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+// Gives the tests of other packages access to the I/O thread of the PersistenceService
+public class PersistenceTestUtil {
+
+    /**
+     * Waits until the writes which are delayed by at most the given delay are executed on the I/O thread.
+     */
+    public static void waitForWrites(long delayInMillis) throws InterruptedException {
+        Thread.sleep(delayInMillis + 200);
+        CountDownLatch written = new CountDownLatch(1);
+        PersistenceService.execute(written::countDown, PersistenceService.Priority.LOW);
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.trade;
+
+import io.bitsquare.common.crypto.KeyRing;
+import io.bitsquare.common.crypto.KeyStorage;
+import io.bitsquare.p2p.Address;
+import io.bitsquare.payment.PaymentMethod;
+import io.bitsquare.storage.ArchiveStorage;
+import io.bitsquare.storage.Storage;
+import io.bitsquare.trade.offer.Offer;
+import io.bitsquare.trade.offer.OpenOffer;
+import org.bitcoinj.core.Coin;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static io.bitsquare.storage.PersistenceTestUtil.waitForWrites;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+public class TradableArchiveTest {
+    // Delay of the journal of the index
+    private static final long INDEX_WRITE_DELAY = 600;
+
+    private File dir;
+    private KeyRing keyRing;
+
+    @Before
+    public void setup() throws IOException {
+        Security.addProvider(new BouncyCastleProvider());
+        dir = createTempDir("temp_tests");
+        keyRing = new KeyRing(new KeyStorage(createTempDir("temp_tests_keys")));
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        // The pending writes would fail after the files got deleted
+        waitForWrites(INDEX_WRITE_DELAY);
+        delete(dir);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testMigrateTradableList() throws IOException, InterruptedException {
+        // The file of an older version, which contains the full tradables
+        TradableList<OpenOffer> tradableList = new TradableList<>(mock(Storage.class), "ClosedTrades");
+        tradableList.add(createOpenOffer(1, Offer.Direction.SELL));
+        tradableList.add(createOpenOffer(2, Offer.Direction.BUY));
+        File tradableListFile = new File(dir, "ClosedTrades");
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(tradableListFile))) {
+            out.writeObject(tradableList);
+        }
+
+        TradableArchive<OpenOffer> archive = new TradableArchive<>(keyRing, dir, "ClosedTrades");
+        assertEquals(2, archive.getSummaries().size());
+        assertEquals(getId(2), archive.getTradableById(getId(2)).get().getId());
+        waitForWrites(INDEX_WRITE_DELAY);
+        assertFalse(tradableListFile.exists());
+        assertTrue(new File(dir, "ClosedTradesArchive/" + getId(1)).exists());
+        assertTrue(new File(dir, "ClosedTradesArchive/" + getId(2)).exists());
+
+        // After a restart the tradables are read from the archive and not migrated again
+        archive = new TradableArchive<>(keyRing, dir, "ClosedTrades");
+        assertEquals(2, archive.getSummaries().size());
+        assertEquals(Offer.Direction.BUY, archive.getTradableById(getId(2)).get().getOffer().getDirection());
+    }
+
+    @Test
+    public void testSummary() throws InterruptedException {
+        TradableArchive<OpenOffer> archive = new TradableArchive<>(keyRing, dir, "ClosedTrades");
+        OpenOffer openOffer = createOpenOffer(1, Offer.Direction.SELL);
+        archive.add(openOffer);
+        waitForWrites(INDEX_WRITE_DELAY);
+
+        TradableSummary summary = new TradableArchive<OpenOffer>(keyRing, dir, "ClosedTrades").getSummaries().get(0);
+        assertEquals(getId(1), summary.id);
+        assertEquals(openOffer.getShortId(), summary.shortId);
+        assertEquals(openOffer.getDate(), summary.date);
+        // It is our offer, so the direction is not mirrored
+        assertEquals(Offer.Direction.SELL, summary.direction);
+        assertEquals(openOffer.getOffer().getPrice(), summary.price);
+        assertEquals(OpenOffer.State.AVAILABLE, summary.openOfferState);
+        assertFalse(summary.isTrade);
+        assertNull(summary.tradeState);
+    }
+
+    @Test
+    public void testMissingSummary() throws InterruptedException {
+        // The tradable was written, but we got interrupted before the index was written
+        new ArchiveStorage<OpenOffer>(dir, "ClosedTradesArchive").write(getId(1), createOpenOffer(1, Offer.Direction.SELL));
+        waitForWrites(0);
+
+        TradableArchive<OpenOffer> archive = new TradableArchive<>(keyRing, dir, "ClosedTrades");
+        assertTrue(archive.contains(getId(1)));
+        assertEquals(getId(1), archive.getSummaries().get(0).id);
+    }
+
+    @Test
+    public void testLoadAfterCacheEviction() throws InterruptedException {
+        TradableArchive<OpenOffer> archive = new TradableArchive<>(keyRing, dir, "ClosedTrades");
+        List<OpenOffer> openOffers = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            OpenOffer openOffer = createOpenOffer(i, Offer.Direction.SELL);
+            openOffers.add(openOffer);
+            archive.add(openOffer);
+        }
+        waitForWrites(0);
+
+        // The first ones are not in the cache anymore and get read from their files
+        OpenOffer loaded = archive.getTradableById(getId(0)).get();
+        assertNotSame(openOffers.get(0), loaded);
+        assertEquals(openOffers.get(0).getOffer(), loaded.getOffer());
+        // Now it is cached
+        assertSame(loaded, archive.getTradableById(getId(0)).get());
+        // The last one was not evicted
+        assertSame(openOffers.get(24), archive.getTradableById(getId(24)).get());
+
+        assertFalse(archive.getTradableById("unknown").isPresent());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // The ids need at least 8 characters for the short id
+    private static String getId(int number) {
+        return String.format("offer-%08d", number);
+    }
+
+    private OpenOffer createOpenOffer(int number, Offer.Direction direction) {
+        long amount = Coin.parseCoin("1").value;
+        Offer offer = new Offer(getId(number), new Address("offerer", 9999), keyRing.getPubKeyRing(), direction, 1000, amount,
+                amount, PaymentMethod.SEPA_ID, "EUR", null, "accountId",
+                Collections.singletonList(new Address("arbitrator", 9999)), null);
+        return new OpenOffer(offer, null);
+    }
+
+    private static File createTempDir(String prefix) throws IOException {
+        File dir = File.createTempFile(prefix, "");
+        dir.delete();
+        dir.mkdir();
+        return dir;
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.trade.offer;
+
+import io.bitsquare.p2p.Address;
+import io.bitsquare.p2p.P2PService;
+import io.bitsquare.p2p.storage.HashMapChangedListener;
+import io.bitsquare.p2p.storage.data.ProtectedData;
+import io.bitsquare.payment.PaymentMethod;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.utils.Fiat;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class OrderBookTest {
+    private static final Address ARBITRATOR_ADDRESS = new Address("arbitrator", 9999);
+
+    private OrderBook orderBook;
+    private HashMapChangedListener dataStorageListener;
+
+    @Before
+    public void setup() {
+        P2PService p2PService = mock(P2PService.class);
+        orderBook = new OrderBook(p2PService);
+
+        ArgumentCaptor<HashMapChangedListener> captor = ArgumentCaptor.forClass(HashMapChangedListener.class);
+        verify(p2PService).addHashSetChangedListener(captor.capture());
+        dataStorageListener = captor.getValue();
+    }
+
+    @Test
+    public void testPriceOrdering() {
+        List<String> events = new ArrayList<>();
+        orderBook.addListener(new OrderBook.Listener() {
+            @Override
+            public void onOfferAdded(Offer offer) {
+                events.add("added " + offer.getId() + " " + offer.getPriceValue());
+            }
+
+            @Override
+            public void onOfferRemoved(Offer offer) {
+                events.add("removed " + offer.getId() + " " + offer.getPriceValue());
+            }
+        });
+        add(createOffer("s1", Offer.Direction.SELL, 300, PaymentMethod.SEPA_ID));
+        add(createOffer("s2", Offer.Direction.SELL, 100, PaymentMethod.SEPA_ID));
+        add(createOffer("s3", Offer.Direction.SELL, 200, PaymentMethod.SEPA_ID));
+        add(createOffer("b1", Offer.Direction.BUY, 100, PaymentMethod.SEPA_ID));
+        add(createOffer("b2", Offer.Direction.BUY, 300, PaymentMethod.SEPA_ID));
+        add(createOffer("b3", Offer.Direction.BUY, 200, PaymentMethod.SEPA_ID));
+
+        // Best price first: the lowest for sell offers, the highest for buy offers
+        assertEquals(Arrays.asList("s2", "s3", "s1"), getIds(orderBook.getOffers("EUR", Offer.Direction.SELL)));
+        assertEquals(Arrays.asList("b2", "b3", "b1"), getIds(orderBook.getOffers("EUR", Offer.Direction.BUY)));
+        assertEquals("s2", orderBook.getBestOffer("EUR", Offer.Direction.SELL).get().getId());
+        assertEquals("b2", orderBook.getBestOffer("EUR", Offer.Direction.BUY).get().getId());
+        assertFalse(orderBook.getBestOffer("USD", Offer.Direction.SELL).isPresent());
+
+        // An offer added again with another price replaces the old one
+        events.clear();
+        add(createOffer("s1", Offer.Direction.SELL, 50, PaymentMethod.SEPA_ID));
+        assertEquals(Arrays.asList("s1", "s2", "s3"), getIds(orderBook.getOffers("EUR", Offer.Direction.SELL)));
+        assertEquals(Arrays.asList("removed s1 300", "added s1 50"), events);
+
+        // An unchanged offer added again is not passed to the listeners
+        events.clear();
+        add(createOffer("s1", Offer.Direction.SELL, 50, PaymentMethod.SEPA_ID));
+        assertEquals(Collections.emptyList(), events);
+
+        remove(createOffer("s2", Offer.Direction.SELL, 100, PaymentMethod.SEPA_ID));
+        assertEquals(Arrays.asList("s1", "s3"), getIds(orderBook.getOffers("EUR", Offer.Direction.SELL)));
+        assertEquals(5, orderBook.getOffers().size());
+    }
+
+    @Test
+    public void testLimitPrice() {
+        add(createOffer("s1", Offer.Direction.SELL, 100, PaymentMethod.SEPA_ID));
+        add(createOffer("s2", Offer.Direction.SELL, 200, PaymentMethod.SEPA_ID));
+        add(createOffer("s3", Offer.Direction.SELL, 300, PaymentMethod.SEPA_ID));
+        add(createOffer("b1", Offer.Direction.BUY, 100, PaymentMethod.SEPA_ID));
+        add(createOffer("b2", Offer.Direction.BUY, 200, PaymentMethod.SEPA_ID));
+        add(createOffer("b3", Offer.Direction.BUY, 300, PaymentMethod.SEPA_ID));
+
+        // The limit price is inclusive
+        OfferQuery sellQuery = new OfferQuery("EUR", Offer.Direction.SELL).limitPrice(Fiat.valueOf("EUR", 200));
+        assertEquals(Arrays.asList("s1", "s2"), getIds(orderBook.findOffers(sellQuery, 10)));
+        OfferQuery buyQuery = new OfferQuery("EUR", Offer.Direction.BUY).limitPrice(Fiat.valueOf("EUR", 200));
+        assertEquals(Arrays.asList("b3", "b2"), getIds(orderBook.findOffers(buyQuery, 10)));
+
+        assertEquals(Collections.emptyList(),
+                getIds(orderBook.findOffers(new OfferQuery("EUR", Offer.Direction.SELL).limitPrice(Fiat.valueOf("EUR", 99)), 10)));
+        assertEquals(Collections.emptyList(),
+                getIds(orderBook.findOffers(new OfferQuery("EUR", Offer.Direction.BUY).limitPrice(Fiat.valueOf("EUR", 301)), 10)));
+        assertEquals(Collections.singletonList("s1"), getIds(orderBook.findOffers(sellQuery, 1)));
+    }
+
+    @Test
+    public void testPaymentMethodIndex() {
+        add(createOffer("sepa1", Offer.Direction.SELL, 200, PaymentMethod.SEPA_ID));
+        add(createOffer("okPay", Offer.Direction.SELL, 100, PaymentMethod.OK_PAY_ID));
+        add(createOffer("sepa2", Offer.Direction.SELL, 150, PaymentMethod.SEPA_ID));
+
+        OfferQuery query = new OfferQuery("EUR", Offer.Direction.SELL).paymentMethod(PaymentMethod.SEPA);
+        assertEquals(Arrays.asList("sepa2", "sepa1"), getIds(orderBook.findOffers(query, 10)));
+        assertEquals("sepa2", orderBook.findBestOffer(query).get().getId());
+
+        remove(createOffer("sepa2", Offer.Direction.SELL, 150, PaymentMethod.SEPA_ID));
+        assertEquals(Collections.singletonList("sepa1"), getIds(orderBook.findOffers(query, 10)));
+
+        OfferQuery swishQuery = new OfferQuery("EUR", Offer.Direction.SELL).paymentMethod(PaymentMethod.SWISH);
+        assertFalse(orderBook.findBestOffer(swishQuery).isPresent());
+    }
+
+    @Test
+    public void testAmountAndArbitrators() {
+        add(createOffer("small", Offer.Direction.SELL, 100, PaymentMethod.SEPA_ID, Coin.parseCoin("0.1").value));
+        add(createOffer("large", Offer.Direction.SELL, 200, PaymentMethod.SEPA_ID, Coin.parseCoin("1").value));
+
+        OfferQuery query = new OfferQuery("EUR", Offer.Direction.SELL).minAmount(Coin.parseCoin("0.5"));
+        assertEquals(Collections.singletonList("large"), getIds(orderBook.findOffers(query, 10)));
+
+        query = new OfferQuery("EUR", Offer.Direction.SELL).arbitrators(Collections.singletonList(new Address("other", 9999)));
+        assertFalse(orderBook.findBestOffer(query).isPresent());
+        query = new OfferQuery("EUR", Offer.Direction.SELL).arbitrators(Collections.singletonList(ARBITRATOR_ADDRESS));
+        assertEquals(Arrays.asList("small", "large"), getIds(orderBook.findOffers(query, 10)));
+    }
+
+    @Test
+    public void testSubscription() {
+        add(createOffer("existing", Offer.Direction.SELL, 100, PaymentMethod.SEPA_ID));
+
+        List<String> received = new ArrayList<>();
+        OfferQuery query = new OfferQuery("EUR", Offer.Direction.SELL).limitPrice(Fiat.valueOf("EUR", 200));
+        OrderBook.Subscription subscription = orderBook.subscribe(query, offer -> received.add(offer.getId()));
+
+        add(createOffer("tooExpensive", Offer.Direction.SELL, 300, PaymentMethod.SEPA_ID));
+        add(createOffer("buyOffer", Offer.Direction.BUY, 150, PaymentMethod.SEPA_ID));
+        add(createOffer("match", Offer.Direction.SELL, 150, PaymentMethod.SEPA_ID));
+        // An offer which gets added again is not delivered again
+        add(createOffer("match", Offer.Direction.SELL, 150, PaymentMethod.SEPA_ID));
+        assertEquals(Collections.singletonList("match"), received);
+
+        subscription.cancel();
+        add(createOffer("afterCancel", Offer.Direction.SELL, 150, PaymentMethod.SEPA_ID));
+        assertEquals(Collections.singletonList("match"), received);
+    }
+
+    @Test
+    public void testListener() {
+        List<String> events = new ArrayList<>();
+        orderBook.addListener(new OrderBook.Listener() {
+            @Override
+            public void onOfferAdded(Offer offer) {
+                events.add("added " + offer.getId());
+            }
+
+            @Override
+            public void onOfferRemoved(Offer offer) {
+                events.add("removed " + offer.getId());
+            }
+        });
+
+        add(createOffer("s1", Offer.Direction.SELL, 100, PaymentMethod.SEPA_ID));
+        remove(createOffer("s1", Offer.Direction.SELL, 100, PaymentMethod.SEPA_ID));
+        // unknown offers are ignored
+        remove(createOffer("s2", Offer.Direction.SELL, 100, PaymentMethod.SEPA_ID));
+        assertEquals(Arrays.asList("added s1", "removed s1"), events);
+        assertEquals(0, orderBook.getNumOffers("EUR", Offer.Direction.SELL));
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void add(Offer offer) {
+        dataStorageListener.onAdded(new ProtectedData(offer, Offer.TTL, null, 0, null));
+    }
+
+    private void remove(Offer offer) {
+        dataStorageListener.onRemoved(new ProtectedData(offer, Offer.TTL, null, 0, null));
+    }
+
+    private static Offer createOffer(String id, Offer.Direction direction, long price, String paymentMethodId) {
+        return createOffer(id, direction, price, paymentMethodId, Coin.parseCoin("1").value);
+    }
+
+    private static Offer createOffer(String id, Offer.Direction direction, long price, String paymentMethodId,
+                                     long amount) {
+        return new Offer(id, new Address("offerer", 9999), null, direction, price, amount, amount / 10,
+                paymentMethodId, "EUR", null, "accountId", Collections.singletonList(ARBITRATOR_ADDRESS), null);
+    }
+
+    private static List<String> getIds(Iterable<Offer> offers) {
+        List<String> ids = new ArrayList<>();
+        offers.forEach(offer -> ids.add(offer.getId()));
+        return ids;
+    }
+}
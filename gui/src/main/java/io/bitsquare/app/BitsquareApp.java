@@ -37,10 +37,12 @@ import io.bitsquare.gui.popups.Popup;
 import io.bitsquare.gui.popups.SendAlertMessagePopup;
 import io.bitsquare.gui.util.ImageUtil;
 import io.bitsquare.p2p.P2PService;
+import io.bitsquare.storage.PersistenceService;
+import io.bitsquare.storage.StartupLoader;
 import io.bitsquare.storage.Storage;
 import io.bitsquare.trade.offer.OpenOfferManager;
+import io.bitsquare.trade.protocol.trade.TradeMetrics;
 import javafx.application.Application;
-import javafx.application.Platform;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.Label;
@@ -61,6 +63,7 @@ import org.reactfx.util.FxTimer;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.env.Environment;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Paths;
 import java.security.Security;
@@ -104,7 +107,7 @@ public class BitsquareApp extends Application {
 
         Version.printVersion();
 
-        UserThread.setExecutor(Platform::runLater);
+        UserThread.setExecutor(new FrameExecutor());
 
         // setup UncaughtExceptionHandler
         Thread.UncaughtExceptionHandler handler = (thread, throwable) -> {
@@ -127,6 +130,9 @@ public class BitsquareApp extends Application {
         shutDownHandler = this::stop;
 
         try {
+            // Start reading the persisted data in parallel while Guice creates the objects using them
+            StartupLoader.preload(new File(env.getRequiredProperty(Storage.DIR_KEY)));
+
             // Guice
             bitsquareAppModule = new BitsquareAppModule(env, primaryStage);
             injector = Guice.createInjector(bitsquareAppModule);
@@ -176,6 +182,10 @@ public class BitsquareApp extends Application {
                         showDebugWindow();
                     else if (new KeyCodeCombination(KeyCode.F, KeyCombination.SHORTCUT_DOWN).match(keyEvent))
                         showFPSWindow();
+                    else if (new KeyCodeCombination(KeyCode.T, KeyCombination.SHORTCUT_DOWN).match(keyEvent))
+                        log.info(TradeMetrics.dump());
+                    else if (new KeyCodeCombination(KeyCode.L, KeyCombination.SHORTCUT_DOWN).match(keyEvent))
+                        Log.setFullNetworkDataLogged(!Log.isFullNetworkDataLogged());
                 }
             });
 
@@ -200,6 +210,8 @@ public class BitsquareApp extends Application {
             // make the UI visible
             primaryStage.show();
 
+            StartupLoader.discardUnclaimed();
+
             //showDebugWindow();
         } catch (Throwable throwable) {
             showErrorPopup(throwable, false);
@@ -298,6 +310,8 @@ public class BitsquareApp extends Application {
     public void stop() {
         gracefulShutDown(() -> {
             log.info("App shutdown complete");
+            // We are on the UserThread, which gets blocked by System.exit, so we flush the pending writes before
+            PersistenceService.shutDown();
             System.exit(0);
         });
     }
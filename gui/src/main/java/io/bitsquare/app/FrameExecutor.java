@@ -0,0 +1,120 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.app;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor for the UserThread which runs the commands on the JavaFX application thread, but instead of posting every
+ * command with Platform.runLater it collects them in a queue and drains that once per frame (AnimationTimer pulse).
+ * A frame only runs commands until its time budget is used up, the rest is left for the next frames, so a burst of
+ * network events (e.g. at startup) does not block rendering and user input.
+ * The timer only runs while there are commands in the queue.
+ */
+public class FrameExecutor implements Executor {
+    private static final Logger log = LoggerFactory.getLogger(FrameExecutor.class);
+
+    private static final long FRAME_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(8);
+
+    private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger backlog = new AtomicInteger();
+    private final AtomicBoolean pumpScheduled = new AtomicBoolean();
+    private final SampledLogger backlogLog = new SampledLogger(log, "UserThread backlog", 10, TimeUnit.SECONDS);
+    private volatile int maxBacklog;
+
+    private final AnimationTimer pump = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            drain();
+        }
+    };
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Executor implementation
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public void execute(Runnable command) {
+        queue.add(command);
+        int size = backlog.incrementAndGet();
+        if (size > maxBacklog)
+            maxBacklog = size;
+
+        if (pumpScheduled.compareAndSet(false, true))
+            Platform.runLater(pump::start);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Getters
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Number of commands waiting for the next frames
+    public int getBacklog() {
+        return backlog.get();
+    }
+
+    public int getMaxBacklog() {
+        return maxBacklog;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void drain() {
+        long start = System.nanoTime();
+        int executed = 0;
+        Runnable command;
+        while (System.nanoTime() - start < FRAME_BUDGET_NANOS && (command = queue.poll()) != null) {
+            backlog.decrementAndGet();
+            executed++;
+            try {
+                command.run();
+            } catch (Throwable t) {
+                // Same handling as an exception thrown in a Platform.runLater call
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+            }
+        }
+
+        if (queue.isEmpty()) {
+            pump.stop();
+            pumpScheduled.set(false);
+            // A command might have been added after the isEmpty check without scheduling the pump
+            if (!queue.isEmpty() && pumpScheduled.compareAndSet(false, true))
+                pump.start();
+        } else {
+            int executedInFrame = executed;
+            backlogLog.log(() -> "Frame budget used up after " + executedInFrame + " commands. Backlog: "
+                    + backlog.get() + ", max. backlog: " + maxBacklog);
+        }
+    }
+}
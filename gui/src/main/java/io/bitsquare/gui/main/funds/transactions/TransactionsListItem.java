@@ -18,7 +18,7 @@
 package io.bitsquare.gui.main.funds.transactions;
 
 import io.bitsquare.btc.WalletService;
-import io.bitsquare.btc.listeners.AddressConfidenceListener;
+import io.bitsquare.btc.listeners.TxConfidenceListener;
 import io.bitsquare.gui.components.confidence.ConfidenceProgressIndicator;
 import io.bitsquare.gui.util.BSFormatter;
 import javafx.beans.property.SimpleStringProperty;
@@ -26,28 +26,46 @@ import javafx.beans.property.StringProperty;
 import javafx.scene.control.Tooltip;
 import org.bitcoinj.core.*;
 
+/**
+ * The details of the transaction are resolved at first access, which happens only when the row gets displayed in
+ * the table. So opening the view with a large wallet only creates lightweight items.
+ */
 public class TransactionsListItem {
-
-
     private final StringProperty date = new SimpleStringProperty();
     private final StringProperty amount = new SimpleStringProperty();
     private final StringProperty type = new SimpleStringProperty();
 
+    private final Transaction transaction;
     private final WalletService walletService;
+    private final BSFormatter formatter;
 
-    private final ConfidenceProgressIndicator progressIndicator;
-
-    private final Tooltip tooltip;
+    private boolean detailsResolved;
     private String addressString;
     private boolean notAnAddress;
-    private AddressConfidenceListener confidenceListener;
+
+    private ConfidenceProgressIndicator progressIndicator;
+    private Tooltip tooltip;
+    private TxConfidenceListener txConfidenceListener;
 
     public TransactionsListItem(Transaction transaction, WalletService walletService, BSFormatter formatter) {
+        this.transaction = transaction;
         this.walletService = walletService;
+        this.formatter = formatter;
+    }
+
+    public void cleanup() {
+        if (txConfidenceListener != null)
+            walletService.removeTxConfidenceListener(txConfidenceListener);
+    }
+
+    private void resolveDetails() {
+        if (detailsResolved)
+            return;
+
+        detailsResolved = true;
 
         Coin valueSentToMe = transaction.getValueSentToMe(walletService.getWallet());
         Coin valueSentFromMe = transaction.getValueSentFromMe(walletService.getWallet());
-        Address address = null;
         if (valueSentToMe.isZero()) {
             amount.set("-" + formatter.formatCoin(valueSentFromMe));
 
@@ -57,9 +75,8 @@ public class TransactionsListItem {
 
                     if (transactionOutput.getScriptPubKey().isSentToAddress() ||
                             transactionOutput.getScriptPubKey().isPayToScriptHash()) {
-                        address =
-                                transactionOutput.getScriptPubKey().getToAddress(walletService.getWallet().getParams());
-                        addressString = address.toString();
+                        addressString = transactionOutput.getScriptPubKey()
+                                .getToAddress(walletService.getWallet().getParams()).toString();
                     } else {
                         addressString = "No sent to address script used.";
                         notAnAddress = true;
@@ -74,9 +91,8 @@ public class TransactionsListItem {
                 if (transactionOutput.isMine(walletService.getWallet())) {
                     if (transactionOutput.getScriptPubKey().isSentToAddress() ||
                             transactionOutput.getScriptPubKey().isPayToScriptHash()) {
-                        address =
-                                transactionOutput.getScriptPubKey().getToAddress(walletService.getWallet().getParams());
-                        addressString = address.toString();
+                        addressString = transactionOutput.getScriptPubKey()
+                                .getToAddress(walletService.getWallet().getParams()).toString();
                     } else {
                         addressString = "No sent to address script used.";
                         notAnAddress = true;
@@ -91,9 +107,8 @@ public class TransactionsListItem {
                     outgoing = true;
                     if (transactionOutput.getScriptPubKey().isSentToAddress() || transactionOutput.getScriptPubKey()
                             .isPayToScriptHash()) {
-                        address = transactionOutput.getScriptPubKey().getToAddress(walletService.getWallet().getParams
-                                ());
-                        addressString = address.toString();
+                        addressString = transactionOutput.getScriptPubKey()
+                                .getToAddress(walletService.getWallet().getParams()).toString();
                     } else {
                         addressString = "No sent to address script used.";
                         notAnAddress = true;
@@ -111,31 +126,6 @@ public class TransactionsListItem {
         }
 
         date.set(formatter.formatDateTime(transaction.getUpdateTime()));
-
-        // confidence
-        progressIndicator = new ConfidenceProgressIndicator();
-        progressIndicator.setId("funds-confidence");
-        tooltip = new Tooltip("Not used yet");
-        progressIndicator.setProgress(0);
-        progressIndicator.setPrefHeight(30);
-        progressIndicator.setPrefWidth(30);
-        Tooltip.install(progressIndicator, tooltip);
-
-        if (address != null) {
-            confidenceListener = walletService.addAddressConfidenceListener(new AddressConfidenceListener(address) {
-                @Override
-                public void onTransactionConfidenceChanged(TransactionConfidence confidence) {
-                    updateConfidence(confidence);
-                }
-            });
-
-            updateConfidence(walletService.getConfidenceForAddress(address));
-        }
-    }
-
-
-    public void cleanup() {
-        walletService.removeAddressConfidenceListener(confidenceListener);
     }
 
     private void updateConfidence(TransactionConfidence confidence) {
@@ -167,29 +157,55 @@ public class TransactionsListItem {
 
 
     public ConfidenceProgressIndicator getProgressIndicator() {
+        if (progressIndicator == null) {
+            progressIndicator = new ConfidenceProgressIndicator();
+            progressIndicator.setId("funds-confidence");
+            tooltip = new Tooltip("Not used yet");
+            progressIndicator.setProgress(0);
+            progressIndicator.setPrefHeight(30);
+            progressIndicator.setPrefWidth(30);
+            Tooltip.install(progressIndicator, tooltip);
+
+            txConfidenceListener = walletService.addTxConfidenceListener(new TxConfidenceListener(transaction.getHashAsString()) {
+                @Override
+                public void onTransactionConfidenceChanged(TransactionConfidence confidence) {
+                    updateConfidence(confidence);
+                }
+            });
+            updateConfidence(transaction.getConfidence());
+        }
         return progressIndicator;
     }
 
 
     public final StringProperty dateProperty() {
+        resolveDetails();
         return this.date;
     }
 
 
     public final StringProperty amountProperty() {
+        resolveDetails();
         return this.amount;
     }
 
 
     public final StringProperty typeProperty() {
+        resolveDetails();
         return this.type;
     }
 
     public String getAddressString() {
+        resolveDetails();
         return addressString;
     }
 
+    public Transaction getTransaction() {
+        return transaction;
+    }
+
     public boolean isNotAnAddress() {
+        resolveDetails();
         return notAnAddress;
     }
 }
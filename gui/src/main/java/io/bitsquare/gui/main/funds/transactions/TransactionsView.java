@@ -18,6 +18,7 @@
 package io.bitsquare.gui.main.funds.transactions;
 
 import io.bitsquare.btc.WalletService;
+import io.bitsquare.btc.listeners.TransactionListener;
 import io.bitsquare.common.util.Utilities;
 import io.bitsquare.gui.common.view.ActivatableView;
 import io.bitsquare.gui.common.view.FxmlView;
@@ -31,10 +32,13 @@ import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
 import javafx.util.Callback;
+import org.bitcoinj.core.Sha256Hash;
 import org.bitcoinj.core.Transaction;
 
 import javax.inject.Inject;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @FxmlView
@@ -47,6 +51,8 @@ public class TransactionsView extends ActivatableView<VBox, Void> {
             confidenceColumn;
 
     private ObservableList<TransactionsListItem> transactionsListItems;
+    private final Map<Sha256Hash, TransactionsListItem> itemsByTxHash = new HashMap<>();
+    private TransactionListener transactionListener;
 
     private final WalletService walletService;
     private final BSFormatter formatter;
@@ -70,17 +76,35 @@ public class TransactionsView extends ActivatableView<VBox, Void> {
 
     @Override
     protected void activate() {
+        // The items are cheap to create, the details and the confidence listener of an item are only set up when
+        // the table displays its row.
         List<Transaction> transactions = walletService.getWallet().getRecentTransactions(10000, true);
         transactionsListItems = FXCollections.observableArrayList();
-        transactionsListItems.addAll(transactions.stream().map(transaction ->
-                new TransactionsListItem(transaction, walletService, formatter)).collect(Collectors.toList()));
+        transactionsListItems.addAll(transactions.stream().map(this::createListItem).collect(Collectors.toList()));
 
         table.setItems(transactionsListItems);
+
+        // New transactions are added at the top instead of rebuilding the list
+        transactionListener = walletService.addTransactionListener(new TransactionListener() {
+            @Override
+            public void onTransaction(Transaction transaction) {
+                if (!itemsByTxHash.containsKey(transaction.getHash()))
+                    transactionsListItems.add(0, createListItem(transaction));
+            }
+        });
     }
 
     @Override
     protected void deactivate() {
+        walletService.removeTransactionListener(transactionListener);
         transactionsListItems.forEach(TransactionsListItem::cleanup);
+        itemsByTxHash.clear();
+    }
+
+    private TransactionsListItem createListItem(Transaction transaction) {
+        TransactionsListItem item = new TransactionsListItem(transaction, walletService, formatter);
+        itemsByTxHash.put(transaction.getHash(), item);
+        return item;
     }
 
     private void openTxDetails(TransactionsListItem item) {
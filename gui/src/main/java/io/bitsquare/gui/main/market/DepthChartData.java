@@ -0,0 +1,165 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.gui.main.market;
+
+import io.bitsquare.trade.offer.Offer;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.chart.XYChart;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.utils.Fiat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Data of one side of the depth chart: the accumulated offer amounts by price level, sorted by ascending price.
+ * <p>
+ * Offers with the same price share one level. Adding or removing an offer updates its level and the accumulated
+ * amount of the levels behind it (towards worse prices: higher ones for sell offers, lower ones for buy offers).
+ * The other data points are not touched, so the chart only redraws the affected tail instead of the whole series.
+ */
+class DepthChartData {
+    private static final double PRICE_DIVISOR = Math.pow(10, Fiat.SMALLEST_UNIT_EXPONENT);
+    private static final double AMOUNT_DIVISOR = Math.pow(10, Coin.SMALLEST_UNIT_EXPONENT);
+
+    private final Offer.Direction direction;
+    // sorted by ascending price, same order as data
+    private final List<Level> levels = new ArrayList<>();
+    private final ObservableList<XYChart.Data<Number, Number>> data = FXCollections.observableArrayList();
+
+    private static class Level {
+        final long price;
+        int numOffers;
+        long amount;
+        long accumulatedAmount;
+        final XYChart.Data<Number, Number> dataPoint;
+
+        Level(long price) {
+            this.price = price;
+            dataPoint = new XYChart.Data<>(price / PRICE_DIVISOR, 0d);
+        }
+    }
+
+    DepthChartData(Offer.Direction direction) {
+        this.direction = direction;
+    }
+
+    ObservableList<XYChart.Data<Number, Number>> getData() {
+        return data;
+    }
+
+    /**
+     * Replaces all data, e.g. after the currency has changed.
+     */
+    void setOffers(Collection<Offer> offers) {
+        levels.clear();
+        offers.stream().forEach(offer -> {
+            long price = offer.getPriceValue();
+            int index = indexOf(price);
+            Level level;
+            if (index >= 0) {
+                level = levels.get(index);
+            } else {
+                level = new Level(price);
+                levels.add(-index - 1, level);
+            }
+            level.numOffers++;
+            level.amount += offer.getAmountValue();
+        });
+
+        long accumulatedAmount = 0;
+        for (int i = 0; i < levels.size(); i++) {
+            Level level = levels.get(direction == Offer.Direction.SELL ? i : levels.size() - 1 - i);
+            accumulatedAmount += level.amount;
+            level.accumulatedAmount = accumulatedAmount;
+            level.dataPoint.setYValue(accumulatedAmount / AMOUNT_DIVISOR);
+        }
+
+        List<XYChart.Data<Number, Number>> dataPoints = new ArrayList<>(levels.size());
+        levels.stream().forEach(level -> dataPoints.add(level.dataPoint));
+        data.setAll(dataPoints);
+    }
+
+    void add(Offer offer) {
+        long price = offer.getPriceValue();
+        int index = indexOf(price);
+        if (index < 0) {
+            index = -index - 1;
+            Level level = new Level(price);
+            // The accumulated amount of a new level is the one of its better neighbour
+            Level betterLevel = getBetterNeighbour(index);
+            level.accumulatedAmount = betterLevel != null ? betterLevel.accumulatedAmount : 0;
+            levels.add(index, level);
+            data.add(index, level.dataPoint);
+        }
+        levels.get(index).numOffers++;
+        levels.get(index).amount += offer.getAmountValue();
+        updateAccumulatedAmounts(index, offer.getAmountValue());
+    }
+
+    void remove(Offer offer) {
+        int index = indexOf(offer.getPriceValue());
+        if (index >= 0) {
+            Level level = levels.get(index);
+            level.numOffers--;
+            level.amount -= offer.getAmountValue();
+            updateAccumulatedAmounts(index, -offer.getAmountValue());
+            if (level.numOffers <= 0) {
+                levels.remove(index);
+                data.remove(index);
+            }
+        }
+    }
+
+    // Binary search by price, returns (-(insertion point) - 1) if not found like Collections.binarySearch
+    private int indexOf(long price) {
+        int low = 0;
+        int high = levels.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midPrice = levels.get(mid).price;
+            if (midPrice < price)
+                low = mid + 1;
+            else if (midPrice > price)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -(low + 1);
+    }
+
+    private Level getBetterNeighbour(int insertionIndex) {
+        if (direction == Offer.Direction.SELL)
+            return insertionIndex > 0 ? levels.get(insertionIndex - 1) : null;
+        else
+            return insertionIndex < levels.size() ? levels.get(insertionIndex) : null;
+    }
+
+    // Updates the level at index and all levels with worse prices
+    private void updateAccumulatedAmounts(int index, long delta) {
+        int from = direction == Offer.Direction.SELL ? index : 0;
+        int to = direction == Offer.Direction.SELL ? levels.size() - 1 : index;
+        for (int i = from; i <= to; i++) {
+            Level level = levels.get(i);
+            level.accumulatedAmount += delta;
+            level.dataPoint.setYValue(level.accumulatedAmount / AMOUNT_DIVISOR);
+        }
+    }
+}
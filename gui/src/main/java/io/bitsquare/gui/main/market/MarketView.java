@@ -21,14 +21,12 @@ import io.bitsquare.common.UserThread;
 import io.bitsquare.common.util.Tuple2;
 import io.bitsquare.gui.common.view.ActivatableViewAndModel;
 import io.bitsquare.gui.common.view.FxmlView;
-import io.bitsquare.gui.main.offer.offerbook.OfferBookListItem;
 import io.bitsquare.gui.util.BSFormatter;
 import io.bitsquare.locale.TradeCurrency;
 import io.bitsquare.trade.offer.Offer;
 import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
-import javafx.collections.ListChangeListener;
 import javafx.fxml.FXML;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -51,8 +49,7 @@ public class MarketView extends ActivatableViewAndModel<TabPane, MarketViewModel
     Tab tab;
 
     private NumberAxis xAxis, yAxis;
-    XYChart.Series seriesBuy, seriesSell;
-    private ListChangeListener<OfferBookListItem> changeListener;
+    private XYChart.Series<Number, Number> seriesBuy, seriesSell;
     private BSFormatter formatter;
     private TableView<Offer> buyOfferTableView;
     private TableView<Offer> sellOfferTableView;
@@ -71,8 +68,6 @@ public class MarketView extends ActivatableViewAndModel<TabPane, MarketViewModel
     public MarketView(MarketViewModel model, BSFormatter formatter) {
         super(model);
         this.formatter = formatter;
-
-        changeListener = c -> updateChartData();
     }
 
     @Override
@@ -127,10 +122,8 @@ public class MarketView extends ActivatableViewAndModel<TabPane, MarketViewModel
         currencyComboBox.setVisibleRowCount(Math.min(currencyComboBox.getItems().size(), 25));
         currencyComboBox.setOnAction(e -> {
             model.onSetTradeCurrency(currencyComboBox.getSelectionModel().getSelectedItem());
-            updateChartData();
         });
 
-        model.getOfferBookListItems().addListener(changeListener);
         tradeCurrencySubscriber = EasyBind.subscribe(model.tradeCurrency,
                 newValue -> {
                     String code = newValue.getCode();
@@ -143,13 +136,10 @@ public class MarketView extends ActivatableViewAndModel<TabPane, MarketViewModel
 
         buyOfferTableView.setItems(model.getBuyOfferList());
         sellOfferTableView.setItems(model.getSellOfferList());
-
-        updateChartData();
     }
 
     @Override
     protected void deactivate() {
-        model.getOfferBookListItems().removeListener(changeListener);
         tradeCurrencySubscriber.unsubscribe();
     }
 
@@ -262,10 +252,10 @@ public class MarketView extends ActivatableViewAndModel<TabPane, MarketViewModel
         yAxis.setLabel("Amount in BTC");
         yAxis.setTickLabelFormatter(new NumberAxis.DefaultFormatter(yAxis, "", ""));
 
-        seriesBuy = new XYChart.Series();
+        seriesBuy = new XYChart.Series<>();
         seriesBuy.setName("Offers for  buy bitcoin  ");
 
-        seriesSell = new XYChart.Series();
+        seriesSell = new XYChart.Series<>();
         seriesSell.setName("Offers for sell bitcoin");
 
         areaChart = new AreaChart<>(xAxis, yAxis);
@@ -273,16 +263,12 @@ public class MarketView extends ActivatableViewAndModel<TabPane, MarketViewModel
         areaChart.setId("charts");
         areaChart.setMinHeight(300);
         areaChart.setPadding(new Insets(0, 30, 10, 0));
-        areaChart.getData().addAll(seriesBuy, seriesSell);
-    }
-
-
-    private void updateChartData() {
-        seriesBuy.getData().clear();
-        seriesSell.getData().clear();
+        areaChart.getData().add(seriesBuy);
+        areaChart.getData().add(seriesSell);
 
-        seriesBuy.getData().addAll(model.getBuyData());
-        seriesSell.getData().addAll(model.getSellData());
+        // The model updates the data points incrementally, so the chart only redraws the changed points
+        seriesBuy.setData(model.getBuyData());
+        seriesSell.setData(model.getSellData());
     }
 
 
@@ -17,36 +17,29 @@
 
 package io.bitsquare.gui.main.market;
 
-import com.google.common.math.LongMath;
 import com.google.inject.Inject;
 import io.bitsquare.gui.common.model.ActivatableViewModel;
-import io.bitsquare.gui.main.offer.offerbook.OfferBook;
-import io.bitsquare.gui.main.offer.offerbook.OfferBookListItem;
 import io.bitsquare.locale.CurrencyUtil;
 import io.bitsquare.locale.TradeCurrency;
 import io.bitsquare.trade.offer.Offer;
+import io.bitsquare.trade.offer.OrderBook;
 import io.bitsquare.user.Preferences;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.FXCollections;
-import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.scene.chart.XYChart;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Collectors;
-
 class MarketViewModel extends ActivatableViewModel {
 
-    private final OfferBook offerBook;
+    private final OrderBook orderBook;
     private final Preferences preferences;
 
     final ObjectProperty<TradeCurrency> tradeCurrency = new SimpleObjectProperty<>(CurrencyUtil.getDefaultFiatCurrency());
-    private final List<XYChart.Data> buyData = new ArrayList();
-    private final List<XYChart.Data> sellData = new ArrayList();
-    private final ObservableList<OfferBookListItem> offerBookListItems;
-    private final ListChangeListener<OfferBookListItem> listChangeListener;
+    private final DepthChartData buyDepthChartData = new DepthChartData(Offer.Direction.BUY);
+    private final DepthChartData sellDepthChartData = new DepthChartData(Offer.Direction.SELL);
+    private final OrderBook.Listener orderBookListener;
+    // sorted with the best price first
     private final ObservableList<Offer> buyOfferList = FXCollections.observableArrayList();
     private final ObservableList<Offer> sellOfferList = FXCollections.observableArrayList();
 
@@ -56,73 +49,95 @@ class MarketViewModel extends ActivatableViewModel {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     @Inject
-    public MarketViewModel(OfferBook offerBook, Preferences preferences) {
-        this.offerBook = offerBook;
+    public MarketViewModel(OrderBook orderBook, Preferences preferences) {
+        this.orderBook = orderBook;
         this.preferences = preferences;
 
-        offerBookListItems = offerBook.getOfferBookListItems();
-        listChangeListener = c -> updateChartData(offerBookListItems);
+        orderBookListener = new OrderBook.Listener() {
+            @Override
+            public void onOfferAdded(Offer offer) {
+                if (isInSelectedMarket(offer)) {
+                    if (offer.getDirection() == Offer.Direction.BUY) {
+                        insertSorted(buyOfferList, offer);
+                        buyDepthChartData.add(offer);
+                    } else {
+                        insertSorted(sellOfferList, offer);
+                        sellDepthChartData.add(offer);
+                    }
+                }
+            }
+
+            @Override
+            public void onOfferRemoved(Offer offer) {
+                if (isInSelectedMarket(offer)) {
+                    if (offer.getDirection() == Offer.Direction.BUY) {
+                        removeSorted(buyOfferList, offer);
+                        buyDepthChartData.remove(offer);
+                    } else {
+                        removeSorted(sellOfferList, offer);
+                        sellDepthChartData.remove(offer);
+                    }
+                }
+            }
+        };
     }
 
     @Override
     protected void activate() {
-        offerBookListItems.addListener(listChangeListener);
-        offerBook.fillOfferBookListItems();
+        orderBook.addListener(orderBookListener);
+        updateChartData();
     }
 
     @Override
     protected void deactivate() {
-        offerBookListItems.removeListener(listChangeListener);
-    }
-
-    private void updateChartData(ObservableList<OfferBookListItem> offerBookListItems) {
-        List<Offer> offerList = offerBookListItems.stream()
-                .map(e -> e.getOffer())
-                .collect(Collectors.toList());
-
-        buyOfferList.clear();
-        buyOfferList.addAll(offerList
-                .stream()
-                .filter(e -> e.getCurrencyCode().equals(tradeCurrency.get().getCode())
-                        && e.getDirection().equals(Offer.Direction.BUY))
-                .sorted((o1, o2) -> {
-                    long a = o1.getPrice().value;
-                    long b = o2.getPrice().value;
-                    if (a != b)
-                        return a < b ? 1 : -1;
-                    return 0;
-                })
-                .collect(Collectors.toList()));
-        iterateBuyOffers(buyOfferList, Offer.Direction.BUY, buyData);
-
-        sellOfferList.clear();
-        sellOfferList.addAll(offerList
-                .stream()
-                .filter(e -> e.getCurrencyCode().equals(tradeCurrency.get().getCode())
-                        && e.getDirection().equals(Offer.Direction.SELL))
-                .sorted((o1, o2) -> {
-                    long a = o1.getPrice().value;
-                    long b = o2.getPrice().value;
-                    if (a != b)
-                        return a > b ? 1 : -1;
-                    return 0;
-                })
-                .collect(Collectors.toList()));
-        iterateBuyOffers(sellOfferList, Offer.Direction.SELL, sellData);
-    }
-
-    private void iterateBuyOffers(List<Offer> sortedList, Offer.Direction direction, List<XYChart.Data> data) {
-        data.clear();
-        double accumulatedAmount = 0;
-        for (Offer offer : sortedList) {
-            double price = (double) offer.getPrice().value / LongMath.pow(10, offer.getPrice().smallestUnitExponent());
-            double amount = (double) offer.getAmount().value / LongMath.pow(10, offer.getAmount().smallestUnitExponent());
-            accumulatedAmount += amount;
-            if (direction.equals(Offer.Direction.BUY))
-                data.add(0, new XYChart.Data(price, accumulatedAmount));
+        orderBook.removeListener(orderBookListener);
+    }
+
+    // Only used at activation and when the currency has changed, single offers are applied incrementally
+    private void updateChartData() {
+        String currencyCode = tradeCurrency.get().getCode();
+        buyOfferList.setAll(orderBook.getOffers(currencyCode, Offer.Direction.BUY));
+        buyDepthChartData.setOffers(buyOfferList);
+
+        sellOfferList.setAll(orderBook.getOffers(currencyCode, Offer.Direction.SELL));
+        sellDepthChartData.setOffers(sellOfferList);
+    }
+
+    private boolean isInSelectedMarket(Offer offer) {
+        return offer.getCurrencyCode().equals(tradeCurrency.get().getCode());
+    }
+
+    private void insertSorted(ObservableList<Offer> offers, Offer offer) {
+        int index = getInsertionIndex(offers, offer);
+        offers.add(index, offer);
+    }
+
+    private void removeSorted(ObservableList<Offer> offers, Offer offer) {
+        // We start at the first offer with that price and compare the ids to avoid the expensive Offer.equals
+        for (int i = getInsertionIndex(offers, offer); i < offers.size(); i++) {
+            if (offers.get(i).getId().equals(offer.getId())) {
+                offers.remove(i);
+                return;
+            }
+        }
+        offers.removeIf(e -> e.getId().equals(offer.getId()));
+    }
+
+    // Index of the first offer with the same or a worse price (binary search)
+    private int getInsertionIndex(ObservableList<Offer> offers, Offer offer) {
+        boolean isBuy = offer.getDirection() == Offer.Direction.BUY;
+        long price = offer.getPriceValue();
+        int low = 0;
+        int high = offers.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            long midPrice = offers.get(mid).getPriceValue();
+            if (isBuy ? midPrice > price : midPrice < price)
+                low = mid + 1;
             else
-                data.add(new XYChart.Data(price, accumulatedAmount));
+                high = mid;
         }
+        return low;
     }
 
 
@@ -132,29 +147,25 @@ class MarketViewModel extends ActivatableViewModel {
 
     public void onSetTradeCurrency(TradeCurrency tradeCurrency) {
         this.tradeCurrency.set(tradeCurrency);
-        updateChartData(offerBookListItems);
+        updateChartData();
     }
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Getters
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    public List<XYChart.Data> getBuyData() {
-        return buyData;
+    public ObservableList<XYChart.Data<Number, Number>> getBuyData() {
+        return buyDepthChartData.getData();
     }
 
-    public List<XYChart.Data> getSellData() {
-        return sellData;
+    public ObservableList<XYChart.Data<Number, Number>> getSellData() {
+        return sellDepthChartData.getData();
     }
 
     public String getCurrencyCode() {
         return tradeCurrency.get().getCode();
     }
 
-    public ObservableList<OfferBookListItem> getOfferBookListItems() {
-        return offerBookListItems;
-    }
-
     public ObservableList<Offer> getBuyOfferList() {
         return buyOfferList;
     }
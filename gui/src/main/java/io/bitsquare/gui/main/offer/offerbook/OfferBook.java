@@ -22,15 +22,14 @@ import io.bitsquare.p2p.storage.data.ProtectedData;
 import io.bitsquare.trade.TradeManager;
 import io.bitsquare.trade.offer.Offer;
 import io.bitsquare.trade.offer.OfferBookService;
-import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.collections.ObservableListBase;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import java.io.Serializable;
-import java.util.List;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.*;
 
 /**
  * Holds and manages the unsorted and unfiltered offerbook list of both buy and sell offers.
@@ -38,12 +37,14 @@ import java.util.concurrent.CopyOnWriteArraySet;
  * As it is used only by the Buy and Sell UIs we treat it as local UI model.
  * It also use OfferRepository.Listener as the lists items class and we don't want to get any dependency out of the
  * package for that.
+ * The items are indexed by the offer id, so adding and removing an offer is O(1). Offers added as a batch (e.g. the
+ * data we get at startup from a GetDataResponse) are reported to the list listeners as a single change.
  */
 public class OfferBook {
     private static final Logger log = LoggerFactory.getLogger(OfferBook.class);
 
     private final OfferBookService offerBookService;
-    private final ObservableList<OfferBookListItem> offerBookListItems = FXCollections.observableArrayList();
+    private final OfferBookListItems offerBookListItems = new OfferBookListItems();
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -59,10 +60,7 @@ public class OfferBook {
                 log.debug("onAdded " + entry);
                 Serializable data = entry.expirablePayload;
                 if (data instanceof Offer) {
-                    Offer offer = (Offer) data;
-                    OfferBookListItem offerBookListItem = new OfferBookListItem(offer);
-                    if (!offerBookListItems.contains(offerBookListItem))
-                        offerBookListItems.add(offerBookListItem);
+                    offerBookListItems.put(new OfferBookListItem((Offer) data));
                 }
             }
 
@@ -78,9 +76,19 @@ public class OfferBook {
                     // clean up possible references in openOfferManager 
                     tradeManager.onOfferRemovedFromRemoteOfferBook(offer);
 
-                    offerBookListItems.removeIf(item -> item.getOffer().getId().equals(offer.getId()));
+                    offerBookListItems.removeById(offer.getId());
                 }
             }
+
+            @Override
+            public void onBatchStarted() {
+                offerBookListItems.beginBatch();
+            }
+
+            @Override
+            public void onBatchCompleted() {
+                offerBookListItems.endBatch();
+            }
         });
     }
 
@@ -91,11 +99,96 @@ public class OfferBook {
     public void fillOfferBookListItems() {
         log.debug("fillOfferBookListItems");
         List<Offer> offers = offerBookService.getOffers();
-        CopyOnWriteArraySet<OfferBookListItem> list = new CopyOnWriteArraySet<>();
+        List<OfferBookListItem> list = new ArrayList<>(offers.size());
         offers.stream().forEach(e -> list.add(new OfferBookListItem(e)));
-        offerBookListItems.clear();
-        offerBookListItems.addAll(list);
+        offerBookListItems.setAll(list);
 
         log.debug("offerBookListItems " + offerBookListItems.size());
     }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // OfferBookListItems
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Unsorted list with an index by offer id. The views sort it anyway, so at remove we move the last item into the
+    // free slot instead of shifting all following items.
+    private static class OfferBookListItems extends ObservableListBase<OfferBookListItem> {
+        private final List<OfferBookListItem> items = new ArrayList<>();
+        private final Map<String, Integer> indexByOfferId = new HashMap<>();
+
+        @Override
+        public OfferBookListItem get(int index) {
+            return items.get(index);
+        }
+
+        @Override
+        public int size() {
+            return items.size();
+        }
+
+        // Replaces an item with the same offer id
+        void put(OfferBookListItem item) {
+            String offerId = item.getOffer().getId();
+            Integer index = indexByOfferId.get(offerId);
+            beginChange();
+            if (index != null) {
+                OfferBookListItem replaced = items.set(index, item);
+                nextSet(index, replaced);
+            } else {
+                indexByOfferId.put(offerId, items.size());
+                items.add(item);
+                nextAdd(items.size() - 1, items.size());
+            }
+            endChange();
+        }
+
+        void removeById(String offerId) {
+            Integer index = indexByOfferId.remove(offerId);
+            if (index != null) {
+                beginChange();
+                int lastIndex = items.size() - 1;
+                if (index != lastIndex) {
+                    OfferBookListItem moved = items.get(lastIndex);
+                    OfferBookListItem removed = items.set(index, moved);
+                    indexByOfferId.put(moved.getOffer().getId(), index);
+                    nextSet(index, removed);
+                    items.remove(lastIndex);
+                    nextRemove(lastIndex, moved);
+                } else {
+                    nextRemove(lastIndex, items.remove(lastIndex));
+                }
+                endChange();
+            }
+        }
+
+        @Override
+        public boolean setAll(Collection<? extends OfferBookListItem> newItems) {
+            List<OfferBookListItem> removed = new ArrayList<>(items);
+            items.clear();
+            indexByOfferId.clear();
+            newItems.stream().forEach(item -> {
+                Integer index = indexByOfferId.get(item.getOffer().getId());
+                if (index != null) {
+                    items.set(index, item);
+                } else {
+                    indexByOfferId.put(item.getOffer().getId(), items.size());
+                    items.add(item);
+                }
+            });
+            beginChange();
+            nextReplace(0, items.size(), removed);
+            endChange();
+            return true;
+        }
+
+        // Changes between beginBatch and endBatch are fired as one change at endBatch
+        void beginBatch() {
+            beginChange();
+        }
+
+        void endBatch() {
+            endChange();
+        }
+    }
 }
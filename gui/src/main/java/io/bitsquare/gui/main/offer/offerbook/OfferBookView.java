@@ -141,9 +141,9 @@ public class OfferBookView extends ActivatableViewAndModel<GridPane, OfferBookVi
         placeholder.setWrapText(true);
         tableView.setPlaceholder(placeholder);
 
-        priceColumn.setComparator((o1, o2) -> o1.getOffer().getPrice().compareTo(o2.getOffer().getPrice()));
-        amountColumn.setComparator((o1, o2) -> o1.getOffer().getAmount().compareTo(o2.getOffer().getAmount()));
-        volumeColumn.setComparator((o1, o2) -> o1.getOffer().getOfferVolume().compareTo(o2.getOffer().getOfferVolume()));
+        priceColumn.setComparator((o1, o2) -> Long.compare(o1.getOffer().getPriceValue(), o2.getOffer().getPriceValue()));
+        amountColumn.setComparator((o1, o2) -> Long.compare(o1.getOffer().getAmountValue(), o2.getOffer().getAmountValue()));
+        volumeColumn.setComparator((o1, o2) -> Long.compare(o1.getOffer().getOfferVolumeValue(), o2.getOffer().getOfferVolumeValue()));
         paymentMethodColumn.setComparator((o1, o2) -> o1.getOffer().getPaymentMethod().compareTo(o2.getOffer().getPaymentMethod()));
     }
 
@@ -26,10 +26,8 @@ import io.bitsquare.locale.BSResources;
 import io.bitsquare.locale.CountryUtil;
 import io.bitsquare.locale.CurrencyUtil;
 import io.bitsquare.locale.TradeCurrency;
-import io.bitsquare.p2p.Address;
 import io.bitsquare.p2p.P2PService;
 import io.bitsquare.payment.PaymentMethod;
-import io.bitsquare.payment.SepaAccount;
 import io.bitsquare.trade.offer.Offer;
 import io.bitsquare.trade.offer.OpenOfferManager;
 import io.bitsquare.user.Preferences;
@@ -43,7 +41,6 @@ import javafx.collections.transformation.FilteredList;
 import javafx.collections.transformation.SortedList;
 
 import java.util.List;
-import java.util.Optional;
 
 class OfferBookViewModel extends ActivatableViewModel {
     private final OpenOfferManager openOfferManager;
@@ -238,22 +235,7 @@ class OfferBookViewModel extends ActivatableViewModel {
     }
 
     boolean isPaymentAccountValidForOffer(Offer offer) {
-
-        Optional<TradeCurrency> result1 = user.getPaymentAccounts().stream()
-                .filter(paymentAccount -> paymentAccount.getPaymentMethod().equals(offer.getPaymentMethod()))
-                .filter(paymentAccount -> {
-                    List<String> offerAcceptedCountryCodes = offer.getAcceptedCountryCodes();
-                    if (offerAcceptedCountryCodes != null && paymentAccount instanceof SepaAccount) {
-                        return ((SepaAccount) paymentAccount).getAcceptedCountryCodes().stream()
-                                .filter(offerAcceptedCountryCodes::contains)
-                                .findAny().isPresent();
-                    } else {
-                        return true;
-                    }
-                })
-                .flatMap(paymentAccount -> paymentAccount.getTradeCurrencies().stream())
-                .filter(currency -> currency.getCode().equals(offer.getCurrencyCode())).findAny();
-        return result1.isPresent();
+        return user.getCapabilities().isPaymentAccountValidForOffer(offer);
     }
 
     public boolean hasPaymentAccountForCurrency() {
@@ -283,12 +265,6 @@ class OfferBookViewModel extends ActivatableViewModel {
 
 
     public boolean hasMatchingArbitrator(Offer offer) {
-        for (Address offerArbitratorAddress : offer.getArbitratorAddresses()) {
-            for (Address acceptedArbitratorAddress : user.getAcceptedArbitratorAddresses()) {
-                if (offerArbitratorAddress.equals(acceptedArbitratorAddress))
-                    return true;
-            }
-        }
-        return false;
+        return user.getCapabilities().hasMatchingArbitrator(offer);
     }
 }
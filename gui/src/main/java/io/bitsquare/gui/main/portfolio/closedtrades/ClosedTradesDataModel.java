@@ -20,19 +20,20 @@ package io.bitsquare.gui.main.portfolio.closedtrades;
 import com.google.inject.Inject;
 import io.bitsquare.gui.common.model.ActivatableDataModel;
 import io.bitsquare.trade.Tradable;
+import io.bitsquare.trade.TradableSummary;
 import io.bitsquare.trade.closed.ClosedTradableManager;
-import io.bitsquare.trade.offer.Offer;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 class ClosedTradesDataModel extends ActivatableDataModel {
     private final ClosedTradableManager closedTradableManager;
 
     private final ObservableList<ClosedTradableListItem> list = FXCollections.observableArrayList();
-    private final ListChangeListener<Tradable> tradesListChangeListener;
+    private final ListChangeListener<TradableSummary> tradesListChangeListener;
 
     @Inject
     public ClosedTradesDataModel(ClosedTradableManager closedTradableManager) {
@@ -44,29 +45,30 @@ class ClosedTradesDataModel extends ActivatableDataModel {
     @Override
     protected void activate() {
         applyList();
-        closedTradableManager.getClosedTrades().addListener(tradesListChangeListener);
+        closedTradableManager.getClosedTradeSummaries().addListener(tradesListChangeListener);
     }
 
     @Override
     protected void deactivate() {
-        closedTradableManager.getClosedTrades().removeListener(tradesListChangeListener);
+        closedTradableManager.getClosedTradeSummaries().removeListener(tradesListChangeListener);
     }
 
     public ObservableList<ClosedTradableListItem> getList() {
         return list;
     }
 
-    public Offer.Direction getDirection(Offer offer) {
-        return closedTradableManager.wasMyOffer(offer) ? offer.getDirection() : offer.getMirroredDirection();
+    // The full tradable is loaded from the archive on demand
+    public Optional<Tradable> getTradable(ClosedTradableListItem item) {
+        return closedTradableManager.getTradableById(item.getSummary().id);
     }
 
     private void applyList() {
         list.clear();
 
-        list.addAll(closedTradableManager.getClosedTrades().stream().map(ClosedTradableListItem::new).collect(Collectors.toList()));
+        list.addAll(closedTradableManager.getClosedTradeSummaries().stream().map(ClosedTradableListItem::new).collect(Collectors.toList()));
 
         // we sort by date, earliest first
-        list.sort((o1, o2) -> o2.getTradable().getDate().compareTo(o1.getTradable().getDate()));
+        list.sort((o1, o2) -> o2.getSummary().date.compareTo(o1.getSummary().date));
     }
 
 }
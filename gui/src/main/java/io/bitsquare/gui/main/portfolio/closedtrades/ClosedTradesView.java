@@ -22,7 +22,6 @@ import io.bitsquare.gui.common.view.FxmlView;
 import io.bitsquare.gui.popups.OfferDetailsPopup;
 import io.bitsquare.gui.popups.TradeDetailsPopup;
 import io.bitsquare.gui.util.BSFormatter;
-import io.bitsquare.trade.Tradable;
 import io.bitsquare.trade.Trade;
 import io.bitsquare.trade.offer.OpenOffer;
 import javafx.beans.property.ReadOnlyObjectWrapper;
@@ -92,13 +91,12 @@ public class ClosedTradesView extends ActivatableViewAndModel<VBox, ClosedTrades
                                 if (item != null && !empty) {
                                     hyperlink = new Hyperlink(model.getTradeId(item));
                                     Tooltip.install(hyperlink, new Tooltip(model.getTradeId(item)));
-                                    hyperlink.setOnAction(event -> {
-                                        Tradable tradable = item.getTradable();
+                                    hyperlink.setOnAction(event -> model.getTradable(item).ifPresent(tradable -> {
                                         if (tradable instanceof Trade)
                                             tradeDetailsPopup.show((Trade) tradable);
                                         else if (tradable instanceof OpenOffer)
                                             offerDetailsPopup.show(tradable.getOffer());
-                                    });
+                                    }));
                                     setGraphic(hyperlink);
                                 }
                                 else {
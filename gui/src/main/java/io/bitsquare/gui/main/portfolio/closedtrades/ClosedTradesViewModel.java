@@ -21,10 +21,14 @@ import com.google.inject.Inject;
 import io.bitsquare.gui.common.model.ActivatableWithDataModel;
 import io.bitsquare.gui.common.model.ViewModel;
 import io.bitsquare.gui.util.BSFormatter;
+import io.bitsquare.trade.Tradable;
+import io.bitsquare.trade.TradableSummary;
 import io.bitsquare.trade.Trade;
 import io.bitsquare.trade.offer.OpenOffer;
 import javafx.collections.ObservableList;
 
+import java.util.Optional;
+
 class ClosedTradesViewModel extends ActivatableWithDataModel<ClosedTradesDataModel> implements ViewModel {
     private final BSFormatter formatter;
 
@@ -41,59 +45,62 @@ class ClosedTradesViewModel extends ActivatableWithDataModel<ClosedTradesDataMod
     }
 
     String getTradeId(ClosedTradableListItem item) {
-        return item.getTradable().getShortId();
+        return item.getSummary().shortId;
+    }
+
+    Optional<Tradable> getTradable(ClosedTradableListItem item) {
+        return dataModel.getTradable(item);
     }
 
     String getAmount(ClosedTradableListItem item) {
-        if (item != null && item.getTradable() instanceof Trade)
-            return formatter.formatCoinWithCode(((Trade) item.getTradable()).getTradeAmount());
-        else if (item != null && item.getTradable() instanceof OpenOffer)
+        if (item != null && item.getSummary().isTrade)
+            return formatter.formatCoinWithCode(item.getSummary().tradeAmount);
+        else if (item != null && item.getSummary().openOfferState != null)
             return "-";
         else
             return "";
     }
 
     String getPrice(ClosedTradableListItem item) {
-        return (item != null) ? formatter.formatFiat(item.getTradable().getOffer().getPrice()) : "";
+        return (item != null) ? formatter.formatFiat(item.getSummary().price) : "";
     }
 
     String getVolume(ClosedTradableListItem item) {
-        if (item != null && item.getTradable() instanceof Trade)
-            return formatter.formatFiatWithCode(((Trade) item.getTradable()).getTradeVolume());
-        else if (item != null && item.getTradable() instanceof OpenOffer)
+        if (item != null && item.getSummary().isTrade)
+            return formatter.formatFiatWithCode(item.getSummary().tradeVolume);
+        else if (item != null && item.getSummary().openOfferState != null)
             return "-";
         else
             return "";
     }
 
     String getDirectionLabel(ClosedTradableListItem item) {
-        return (item != null) ? formatter.getDirection(dataModel.getDirection(item.getTradable().getOffer())) : "";
+        return (item != null) ? formatter.getDirection(item.getSummary().direction) : "";
     }
 
     String getDate(ClosedTradableListItem item) {
-        return formatter.formatDateTime(item.getTradable().getDate());
+        return formatter.formatDateTime(item.getSummary().date);
     }
 
     String getState(ClosedTradableListItem item) {
         if (item != null) {
-            if (item.getTradable() instanceof Trade) {
-                Trade trade = (Trade) item.getTradable();
-
+            TradableSummary summary = item.getSummary();
+            if (summary.isTrade) {
                 // TODO 
                /* if (trade.isFailedState())
                     return "Failed";
                 else*/
-                if (trade.getState() == Trade.State.WITHDRAW_COMPLETED) {
+                if (summary.tradeState == Trade.State.WITHDRAW_COMPLETED) {
                     return "Completed";
-                } else if (trade.getDisputeState() == Trade.DisputeState.DISPUTE_CLOSED) {
+                } else if (summary.disputeState == Trade.DisputeState.DISPUTE_CLOSED) {
                     return "Ticket closed";
                 } else {
                     log.error("That must not happen. We got a pending state but we are in the closed trades list.");
-                    return trade.getState().toString();
+                    return String.valueOf(summary.tradeState);
                 }
             }
-            else if (item.getTradable() instanceof OpenOffer) {
-                OpenOffer.State state = ((OpenOffer) item.getTradable()).getState();
+            else if (summary.openOfferState != null) {
+                OpenOffer.State state = summary.openOfferState;
                 log.trace("OpenOffer state {}", state);
                 switch (state) {
                     case AVAILABLE:
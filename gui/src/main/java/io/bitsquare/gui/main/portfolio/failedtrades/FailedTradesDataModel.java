@@ -19,13 +19,14 @@ package io.bitsquare.gui.main.portfolio.failedtrades;
 
 import com.google.inject.Inject;
 import io.bitsquare.gui.common.model.ActivatableDataModel;
+import io.bitsquare.trade.TradableSummary;
 import io.bitsquare.trade.Trade;
 import io.bitsquare.trade.failed.FailedTradesManager;
-import io.bitsquare.trade.offer.Offer;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 class FailedTradesDataModel extends ActivatableDataModel {
@@ -33,7 +34,7 @@ class FailedTradesDataModel extends ActivatableDataModel {
     private final FailedTradesManager failedTradesManager;
 
     private final ObservableList<FailedTradesListItem> list = FXCollections.observableArrayList();
-    private final ListChangeListener<Trade> tradesListChangeListener;
+    private final ListChangeListener<TradableSummary> tradesListChangeListener;
 
     @Inject
     public FailedTradesDataModel(FailedTradesManager failedTradesManager) {
@@ -45,29 +46,30 @@ class FailedTradesDataModel extends ActivatableDataModel {
     @Override
     protected void activate() {
         applyList();
-        failedTradesManager.getFailedTrades().addListener(tradesListChangeListener);
+        failedTradesManager.getFailedTradeSummaries().addListener(tradesListChangeListener);
     }
 
     @Override
     protected void deactivate() {
-        failedTradesManager.getFailedTrades().removeListener(tradesListChangeListener);
+        failedTradesManager.getFailedTradeSummaries().removeListener(tradesListChangeListener);
     }
 
     public ObservableList<FailedTradesListItem> getList() {
         return list;
     }
 
-    public Offer.Direction getDirection(Offer offer) {
-        return failedTradesManager.wasMyOffer(offer) ? offer.getDirection() : offer.getMirroredDirection();
+    // The full trade is loaded from the archive on demand
+    public Optional<Trade> getTrade(FailedTradesListItem item) {
+        return failedTradesManager.getTradeById(item.getSummary().id);
     }
 
     private void applyList() {
         list.clear();
 
-        list.addAll(failedTradesManager.getFailedTrades().stream().map(FailedTradesListItem::new).collect(Collectors.toList()));
+        list.addAll(failedTradesManager.getFailedTradeSummaries().stream().map(FailedTradesListItem::new).collect(Collectors.toList()));
 
         // we sort by date, earliest first
-        list.sort((o1, o2) -> o2.getTrade().getDate().compareTo(o1.getTrade().getDate()));
+        list.sort((o1, o2) -> o2.getSummary().date.compareTo(o1.getSummary().date));
     }
 
 }
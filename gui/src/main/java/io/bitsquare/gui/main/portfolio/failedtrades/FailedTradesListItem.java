@@ -17,20 +17,20 @@
 
 package io.bitsquare.gui.main.portfolio.failedtrades;
 
-import io.bitsquare.trade.Trade;
+import io.bitsquare.trade.TradableSummary;
 
 /**
  * We could remove that wrapper if it is not needed for additional UI only fields.
  */
 class FailedTradesListItem {
 
-    private final Trade trade;
+    private final TradableSummary summary;
 
-    FailedTradesListItem(Trade trade) {
-        this.trade = trade;
+    FailedTradesListItem(TradableSummary summary) {
+        this.summary = summary;
     }
 
-    Trade getTrade() {
-        return trade;
+    TradableSummary getSummary() {
+        return summary;
     }
 }
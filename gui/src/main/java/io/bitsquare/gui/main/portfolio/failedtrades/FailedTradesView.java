@@ -20,7 +20,6 @@ package io.bitsquare.gui.main.portfolio.failedtrades;
 import io.bitsquare.gui.common.view.ActivatableViewAndModel;
 import io.bitsquare.gui.common.view.FxmlView;
 import io.bitsquare.gui.popups.TradeDetailsPopup;
-import io.bitsquare.trade.Trade;
 import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
@@ -81,10 +80,7 @@ public class FailedTradesView extends ActivatableViewAndModel<VBox, FailedTrades
                                 if (item != null && !empty) {
                                     hyperlink = new Hyperlink(model.getTradeId(item));
                                     Tooltip.install(hyperlink, new Tooltip(model.getTradeId(item)));
-                                    hyperlink.setOnAction(event -> {
-                                        Trade trade = item.getTrade();
-                                        tradeDetailsPopup.show(trade);
-                                    });
+                                    hyperlink.setOnAction(event -> model.getTrade(item).ifPresent(tradeDetailsPopup::show));
                                     setGraphic(hyperlink);
                                 }
                                 else {
@@ -24,6 +24,8 @@ import io.bitsquare.gui.util.BSFormatter;
 import io.bitsquare.trade.Trade;
 import javafx.collections.ObservableList;
 
+import java.util.Optional;
+
 class FailedTradesViewModel extends ActivatableWithDataModel<FailedTradesDataModel> implements ViewModel {
     private final BSFormatter formatter;
 
@@ -40,38 +42,41 @@ class FailedTradesViewModel extends ActivatableWithDataModel<FailedTradesDataMod
     }
 
     String getTradeId(FailedTradesListItem item) {
-        return item.getTrade().getShortId();
+        return item.getSummary().shortId;
+    }
+
+    Optional<Trade> getTrade(FailedTradesListItem item) {
+        return dataModel.getTrade(item);
     }
 
     String getAmount(FailedTradesListItem item) {
-        if (item != null && item.getTrade() instanceof Trade)
-            return formatter.formatCoinWithCode(((Trade) item.getTrade()).getTradeAmount());
+        if (item != null && item.getSummary().isTrade)
+            return formatter.formatCoinWithCode(item.getSummary().tradeAmount);
         else
             return "";
     }
 
     String getPrice(FailedTradesListItem item) {
-        return (item != null) ? formatter.formatFiat(item.getTrade().getOffer().getPrice()) : "";
+        return (item != null) ? formatter.formatFiat(item.getSummary().price) : "";
     }
 
     String getVolume(FailedTradesListItem item) {
-        if (item != null && item.getTrade() instanceof Trade)
-            return formatter.formatFiatWithCode(((Trade) item.getTrade()).getTradeVolume());
+        if (item != null && item.getSummary().isTrade)
+            return formatter.formatFiatWithCode(item.getSummary().tradeVolume);
         else
             return "";
     }
 
     String getDirectionLabel(FailedTradesListItem item) {
-        return (item != null) ? formatter.getDirection(dataModel.getDirection(item.getTrade().getOffer())) : "";
+        return (item != null) ? formatter.getDirection(item.getSummary().direction) : "";
     }
 
     String getDate(FailedTradesListItem item) {
-        return formatter.formatDateTime(item.getTrade().getDate());
+        return formatter.formatDateTime(item.getSummary().date);
     }
 
     String getState(FailedTradesListItem item) {
         if (item != null) {
-            Trade trade = item.getTrade();
             //TODO
             //if (trade.isFailedState())
             return "Failed";
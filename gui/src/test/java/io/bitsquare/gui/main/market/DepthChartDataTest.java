@@ -0,0 +1,120 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.gui.main.market;
+
+import io.bitsquare.p2p.Address;
+import io.bitsquare.payment.PaymentMethod;
+import io.bitsquare.trade.offer.Offer;
+import javafx.scene.chart.XYChart;
+import org.bitcoinj.core.Coin;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class DepthChartDataTest {
+    private int offerId;
+
+    @Test
+    public void testSellOffers() {
+        DepthChartData depthChartData = new DepthChartData(Offer.Direction.SELL);
+        Offer offer100 = createOffer(Offer.Direction.SELL, 100, "1");
+        depthChartData.setOffers(Arrays.asList(offer100,
+                createOffer(Offer.Direction.SELL, 200, "2"),
+                createOffer(Offer.Direction.SELL, 300, "3")));
+        assertEquals(Arrays.asList(1d, 3d, 6d), getAmounts(depthChartData));
+        XYChart.Data<Number, Number> bestDataPoint = depthChartData.getData().get(0);
+
+        // Only the new level and the levels with higher prices change
+        depthChartData.add(createOffer(Offer.Direction.SELL, 150, "1"));
+        assertEquals(Arrays.asList(1d, 2d, 4d, 7d), getAmounts(depthChartData));
+        assertEquals(Arrays.asList(100d, 150d, 200d, 300d), getPrices(depthChartData));
+        assertSame(bestDataPoint, depthChartData.getData().get(0));
+
+        // Offers with the same price share a level
+        depthChartData.add(createOffer(Offer.Direction.SELL, 200, "1"));
+        assertEquals(Arrays.asList(1d, 2d, 5d, 8d), getAmounts(depthChartData));
+
+        depthChartData.remove(offer100);
+        assertEquals(Arrays.asList(1d, 4d, 7d), getAmounts(depthChartData));
+        assertEquals(Arrays.asList(150d, 200d, 300d), getPrices(depthChartData));
+    }
+
+    @Test
+    public void testBuyOffers() {
+        DepthChartData depthChartData = new DepthChartData(Offer.Direction.BUY);
+        Offer offer300 = createOffer(Offer.Direction.BUY, 300, "3");
+        depthChartData.setOffers(Arrays.asList(createOffer(Offer.Direction.BUY, 100, "1"),
+                createOffer(Offer.Direction.BUY, 200, "2"),
+                offer300));
+        // The amounts accumulate from the highest price downwards
+        assertEquals(Arrays.asList(6d, 5d, 3d), getAmounts(depthChartData));
+        XYChart.Data<Number, Number> bestDataPoint = depthChartData.getData().get(2);
+
+        depthChartData.add(createOffer(Offer.Direction.BUY, 250, "1"));
+        assertEquals(Arrays.asList(7d, 6d, 4d, 3d), getAmounts(depthChartData));
+        assertSame(bestDataPoint, depthChartData.getData().get(3));
+
+        depthChartData.remove(offer300);
+        assertEquals(Arrays.asList(4d, 3d, 1d), getAmounts(depthChartData));
+    }
+
+    @Test
+    public void testIncrementalUpdatesMatchSetOffers() {
+        List<Offer> offers = new ArrayList<>();
+        DepthChartData incremental = new DepthChartData(Offer.Direction.SELL);
+        for (long price : new long[]{500, 100, 300, 100, 400, 200, 300}) {
+            Offer offer = createOffer(Offer.Direction.SELL, price, "0.5");
+            offers.add(offer);
+            incremental.add(offer);
+        }
+        incremental.remove(offers.remove(2));
+
+        DepthChartData full = new DepthChartData(Offer.Direction.SELL);
+        full.setOffers(offers);
+        assertEquals(getPrices(full), getPrices(incremental));
+        assertEquals(getAmounts(full), getAmounts(incremental));
+
+        full.setOffers(Collections.emptyList());
+        assertEquals(0, full.getData().size());
+    }
+
+    private Offer createOffer(Offer.Direction direction, long price, String amount) {
+        long amountValue = Coin.parseCoin(amount).value;
+        return new Offer(String.valueOf(offerId++), new Address("offerer", 9999), null, direction, price, amountValue,
+                amountValue, PaymentMethod.SEPA_ID, "EUR", null, "accountId",
+                Collections.singletonList(new Address("arbitrator", 9999)), null);
+    }
+
+    private static List<Double> getPrices(DepthChartData depthChartData) {
+        List<Double> prices = new ArrayList<>();
+        depthChartData.getData().forEach(dataPoint -> prices.add(dataPoint.getXValue().doubleValue() * 10000));
+        return prices;
+    }
+
+    private static List<Double> getAmounts(DepthChartData depthChartData) {
+        List<Double> amounts = new ArrayList<>();
+        depthChartData.getData().forEach(dataPoint -> amounts.add(dataPoint.getYValue().doubleValue()));
+        return amounts;
+    }
+}
@@ -2,7 +2,11 @@ package io.bitsquare.p2p;
 
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
 import io.bitsquare.app.Log;
@@ -12,6 +16,7 @@ import io.bitsquare.common.UserThread;
 import io.bitsquare.common.crypto.CryptoException;
 import io.bitsquare.common.crypto.KeyRing;
 import io.bitsquare.common.crypto.PubKeyRing;
+import io.bitsquare.common.util.Tuple2;
 import io.bitsquare.crypto.EncryptionService;
 import io.bitsquare.crypto.SealedAndSignedMessage;
 import io.bitsquare.p2p.messaging.*;
@@ -26,6 +31,7 @@ import io.bitsquare.p2p.storage.data.ProtectedData;
 import io.bitsquare.p2p.storage.data.ProtectedMailboxData;
 import io.bitsquare.p2p.storage.messages.GetDataRequest;
 import io.bitsquare.p2p.storage.messages.GetDataResponse;
+import io.bitsquare.p2p.storage.messages.RefreshTTLMessage;
 import io.bitsquare.storage.Storage;
 import javafx.beans.property.*;
 import org.fxmisc.easybind.EasyBind;
@@ -39,7 +45,9 @@ import java.io.File;
 import java.security.PublicKey;
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -47,6 +55,9 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public class P2PService implements SetupListener, MessageListener, ConnectionListener {
     private static final Logger log = LoggerFactory.getLogger(P2PService.class);
 
+    // Every n-th refresh of the TTL broadcasts the whole data again
+    private static final int FULL_REPUBLISH_INTERVAL = 4;
+
     private final SeedNodesRepository seedNodesRepository;
     private final int port;
     private final File torDir;
@@ -66,6 +77,7 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
     private final Map<DecryptedMsgWithPubKey, ProtectedMailboxData> mailboxMap = new HashMap<>();
     private final Set<Address> authenticatedPeerAddresses = new HashSet<>();
     private final CopyOnWriteArraySet<Runnable> shutDownResultHandlers = new CopyOnWriteArraySet<>();
+    private final Map<ExpirablePayload, Integer> numRefreshesByPayload = new HashMap<>();
     private final BooleanProperty hiddenServicePublished = new SimpleBooleanProperty();
     private final BooleanProperty requestingDataCompleted = new SimpleBooleanProperty();
     private final BooleanProperty authenticated = new SimpleBooleanProperty();
@@ -77,6 +89,13 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
     private MonadicBinding<Boolean> readyForAuthentication;
     private final Storage<Address> dbStorage;
     private Address myOnionAddress;
+    // Decryption of mailbox data is expensive (RSA, signature check, AES, deserialisation), so we run it on a
+    // worker pool. Only created if we have an encryptionService (not for seed nodes).
+    @Nullable
+    private ListeningExecutorService mailboxDecryptionExecutor;
+    // While we process a GetDataResponse we collect the mailbox data and decrypt it as one batch
+    @Nullable
+    private List<ProtectedMailboxData> pendingMailboxDataList;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -134,14 +153,28 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
         // P2P network storage 
         dataStorage = new ProtectedExpirableDataStorage(peerGroup, storageDir);
 
+        if (encryptionService != null) {
+            int numThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            mailboxDecryptionExecutor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(numThreads,
+                    new ThreadFactoryBuilder()
+                            .setNameFormat("MailboxDecryption-%d")
+                            .setDaemon(true)
+                            .build()));
+        }
+
         networkNode.addConnectionListener(this);
         networkNode.addMessageListener(this);
 
         dataStorage.addHashMapChangedListener(new HashMapChangedListener() {
             @Override
             public void onAdded(ProtectedData entry) {
-                if (entry instanceof ProtectedMailboxData)
-                    processProtectedMailboxData((ProtectedMailboxData) entry);
+                if (entry instanceof ProtectedMailboxData) {
+                    if (pendingMailboxDataList != null)
+                        pendingMailboxDataList.add((ProtectedMailboxData) entry);
+                    else
+                        processProtectedMailboxData(Collections.singletonList((ProtectedMailboxData) entry), () -> {
+                        });
+                }
             }
 
             @Override
@@ -179,8 +212,17 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
             HashSet<ProtectedData> set = getDataResponse.set;
             // we keep that connection open as the bootstrapping peer will use that for the authentication
             // as we are not authenticated yet the data adding will not be broadcasted 
-            set.stream().forEach(e -> dataStorage.add(e, connection.getPeerAddress()));
-            onRequestingDataComplete();
+            pendingMailboxDataList = new ArrayList<>();
+            try {
+                // Added as one batch, so the listeners can coalesce their updates
+                dataStorage.addAll(new ArrayList<>(set), connection.getPeerAddress());
+            } finally {
+                List<ProtectedMailboxData> mailboxDataList = pendingMailboxDataList;
+                pendingMailboxDataList = null;
+                // The trades apply their mailbox messages only once at startup, so we must not complete before
+                // the mailbox messages are delivered
+                processProtectedMailboxData(mailboxDataList, this::onRequestingDataComplete);
+            }
         } else if (message instanceof SealedAndSignedMessage) {
             Log.traceCall(message.toString());
             // Seed nodes don't have set the encryptionService
@@ -401,6 +443,9 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
             if (dataStorage != null)
                 dataStorage.shutDown();
 
+            if (mailboxDecryptionExecutor != null)
+                mailboxDecryptionExecutor.shutdownNow();
+
             if (peerGroup != null)
                 peerGroup.shutDown();
 
@@ -469,42 +514,82 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
     // MailboxMessages
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    private void processProtectedMailboxData(ProtectedMailboxData mailboxData) {
-        if (encryptionService != null) {
-            Log.traceCall();
-            ExpirablePayload expirablePayload = mailboxData.expirablePayload;
-            if (expirablePayload instanceof ExpirableMailboxPayload) {
-                ExpirableMailboxPayload expirableMailboxPayload = (ExpirableMailboxPayload) expirablePayload;
-                SealedAndSignedMessage sealedAndSignedMessage = expirableMailboxPayload.sealedAndSignedMessage;
-                if (verifyAddressPrefixHash(sealedAndSignedMessage)) {
-                    try {
-                        DecryptedMsgWithPubKey decryptedMsgWithPubKey = encryptionService.decryptAndVerify(
-                                sealedAndSignedMessage.sealedAndSigned);
-                        if (decryptedMsgWithPubKey.message instanceof MailboxMessage) {
-                            MailboxMessage mailboxMessage = (MailboxMessage) decryptedMsgWithPubKey.message;
-                            Address senderAddress = mailboxMessage.getSenderAddress();
-                            checkNotNull(senderAddress, "senderAddress must not be null for mailbox messages");
-
-                            mailboxMap.put(decryptedMsgWithPubKey, mailboxData);
-                            log.trace("Decryption of SealedAndSignedMessage succeeded. senderAddress="
-                                    + senderAddress + " / my address=" + getAddress());
-                            decryptedMailboxListeners.stream().forEach(
-                                    e -> e.onMailboxMessageAdded(decryptedMsgWithPubKey, senderAddress));
+    // We decrypt all candidates in parallel at the mailboxDecryptionExecutor and deliver the results in the
+    // order of the mailboxDataList to the listeners on the UserThread. The completeHandler is called on the
+    // UserThread after all results have been delivered.
+    private void processProtectedMailboxData(List<ProtectedMailboxData> mailboxDataList, Runnable completeHandler) {
+        List<ListenableFuture<Tuple2<DecryptedMsgWithPubKey, ProtectedMailboxData>>> futures = new ArrayList<>();
+        if (encryptionService != null && mailboxDecryptionExecutor != null && !mailboxDataList.isEmpty()) {
+            Log.traceCall("mailboxDataList.size()=" + mailboxDataList.size());
+            mailboxDataList.stream()
+                    .filter(mailboxData -> mailboxData.expirablePayload instanceof ExpirableMailboxPayload)
+                    .filter(mailboxData -> {
+                        ExpirableMailboxPayload expirableMailboxPayload = (ExpirableMailboxPayload) mailboxData.expirablePayload;
+                        if (verifyAddressPrefixHash(expirableMailboxPayload.sealedAndSignedMessage)) {
+                            return true;
                         } else {
-                            log.warn("tryDecryptMailboxData: Expected MailboxMessage but got other type. " +
-                                    "decryptedMsgWithPubKey.message=", decryptedMsgWithPubKey.message);
+                            log.info("Wrong blurredAddressHash. The message is not intended for us.");
+                            return false;
                         }
-                    } catch (CryptoException e) {
-                        log.trace("Decryption of SealedAndSignedMessage failed. " +
-                                "That is expected if the message is not intended for us. " + e.getMessage());
-                    }
-                } else {
-                    log.info("Wrong blurredAddressHash. The message is not intended for us.");
-                }
+                    })
+                    .forEach(mailboxData -> futures.add(mailboxDecryptionExecutor.submit(() -> decryptMailboxData(mailboxData))));
+        }
+
+        if (!futures.isEmpty()) {
+            long ts = System.currentTimeMillis();
+            ListenableFuture<List<Tuple2<DecryptedMsgWithPubKey, ProtectedMailboxData>>> resultFuture =
+                    Futures.successfulAsList(futures);
+            resultFuture.addListener(() -> {
+                // successfulAsList never fails, failed decryptions are null in the result
+                List<Tuple2<DecryptedMsgWithPubKey, ProtectedMailboxData>> result = Futures.getUnchecked(resultFuture);
+                log.trace("Decryption of {} mailbox data entries took {} ms",
+                        futures.size(), System.currentTimeMillis() - ts);
+                UserThread.execute(() -> {
+                    result.stream()
+                            .filter(tuple -> tuple != null)
+                            .forEach(tuple -> onMailboxDataDecrypted(tuple.first, tuple.second));
+                    completeHandler.run();
+                });
+            }, MoreExecutors.directExecutor());
+        } else {
+            completeHandler.run();
+        }
+    }
+
+    // Called from mailboxDecryptionExecutor threads. Returns null if the data is not intended for us.
+    @Nullable
+    private Tuple2<DecryptedMsgWithPubKey, ProtectedMailboxData> decryptMailboxData(ProtectedMailboxData mailboxData) {
+        SealedAndSignedMessage sealedAndSignedMessage =
+                ((ExpirableMailboxPayload) mailboxData.expirablePayload).sealedAndSignedMessage;
+        try {
+            DecryptedMsgWithPubKey decryptedMsgWithPubKey = encryptionService.decryptAndVerify(
+                    sealedAndSignedMessage.sealedAndSigned);
+            if (decryptedMsgWithPubKey.message instanceof MailboxMessage) {
+                return new Tuple2<>(decryptedMsgWithPubKey, mailboxData);
+            } else {
+                log.warn("tryDecryptMailboxData: Expected MailboxMessage but got other type. " +
+                        "decryptedMsgWithPubKey.message=", decryptedMsgWithPubKey.message);
+                return null;
             }
+        } catch (CryptoException e) {
+            log.trace("Decryption of SealedAndSignedMessage failed. " +
+                    "That is expected if the message is not intended for us. " + e.getMessage());
+            return null;
         }
     }
 
+    private void onMailboxDataDecrypted(DecryptedMsgWithPubKey decryptedMsgWithPubKey, ProtectedMailboxData mailboxData) {
+        MailboxMessage mailboxMessage = (MailboxMessage) decryptedMsgWithPubKey.message;
+        Address senderAddress = mailboxMessage.getSenderAddress();
+        checkNotNull(senderAddress, "senderAddress must not be null for mailbox messages");
+
+        mailboxMap.put(decryptedMsgWithPubKey, mailboxData);
+        log.trace("Decryption of SealedAndSignedMessage succeeded. senderAddress="
+                + senderAddress + " / my address=" + getAddress());
+        decryptedMailboxListeners.stream().forEach(
+                e -> e.onMailboxMessageAdded(decryptedMsgWithPubKey, senderAddress));
+    }
+
     public void sendEncryptedMailboxMessage(Address peerAddress, PubKeyRing peersPubKeyRing,
                                             MailboxMessage message, SendMailboxMessageListener sendMailboxMessageListener) {
         Log.traceCall();
@@ -579,6 +664,56 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
         }
     }
 
+    /**
+     * Signs all payloads in parallel and broadcasts the new ones in a single message.
+     *
+     * @return The payloads which have been added.
+     */
+    public List<ExpirablePayload> addData(List<? extends ExpirablePayload> expirablePayloads) {
+        Log.traceCall();
+        checkAuthentication();
+
+        try {
+            List<ProtectedData> protectedDataList = dataStorage.getDataWithSignedSeqNr(expirablePayloads, keyRing.getSignatureKeyPair());
+            return dataStorage.addAll(protectedDataList, networkNode.getAddress()).stream()
+                    .map(protectedData -> protectedData.expirablePayload)
+                    .collect(Collectors.toList());
+        } catch (CryptoException e) {
+            log.error("Signing at getDataWithSignedSeqNr failed. That should never happen.");
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Resets the TTL of our data at the peers with a small RefreshTTLMessage instead of sending the data again.
+     * Peers which have missed the data don't get it with a refresh, so every FULL_REPUBLISH_INTERVAL-th time we
+     * broadcast the whole data instead.
+     *
+     * @return False if we don't have the data in our map (e.g. if it has expired), then it needs to be added again.
+     */
+    public boolean refreshTTL(ExpirablePayload expirablePayload) {
+        Log.traceCall();
+        checkAuthentication();
+
+        // Peers ignore refreshes for data they don't have, so we don't send one if we don't have it either
+        if (!dataStorage.contains(expirablePayload))
+            return false;
+
+        try {
+            int numRefreshes = numRefreshesByPayload.merge(expirablePayload, 1, Integer::sum);
+            if (numRefreshes % FULL_REPUBLISH_INTERVAL == 0) {
+                ProtectedData protectedData = dataStorage.getDataWithSignedSeqNr(expirablePayload, keyRing.getSignatureKeyPair());
+                return dataStorage.republish(protectedData, networkNode.getAddress());
+            }
+
+            RefreshTTLMessage refreshTTLMessage = dataStorage.getRefreshTTLMessage(expirablePayload, keyRing.getSignatureKeyPair());
+            return dataStorage.refreshTTL(refreshTTLMessage, networkNode.getAddress());
+        } catch (CryptoException e) {
+            log.error("Signing at getRefreshTTLMessage failed. That should never happen.");
+            return false;
+        }
+    }
+
     private void addMailboxData(ExpirableMailboxPayload expirableMailboxPayload, PublicKey receiversPublicKey) {
         Log.traceCall();
         checkAuthentication();
@@ -598,6 +733,7 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
         Log.traceCall();
         checkAuthentication();
 
+        numRefreshesByPayload.remove(expirablePayload);
         try {
             ProtectedData protectedData = dataStorage.getDataWithSignedSeqNr(expirablePayload, keyRing.getSignatureKeyPair());
             return dataStorage.remove(protectedData, networkNode.getAddress());
@@ -1,6 +1,6 @@
 package io.bitsquare.p2p;
 
-import io.bitsquare.common.ByteArrayUtils;
+import io.bitsquare.common.util.SerializationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -11,6 +11,7 @@ import java.net.ServerSocket;
 import java.util.Random;
 import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
 
 public class Utils {
@@ -27,24 +28,19 @@ public class Utils {
         } 
     }
 
+    // We serialize directly into the compressor, so the uncompressed data is never materialized as byte array
     public static byte[] compress(Serializable input) {
-        return compress(ByteArrayUtils.objectToByteArray(input));
-    }
-
-    private static byte[] compress(byte[] input) {
         Deflater compressor = new Deflater();
         compressor.setLevel(Deflater.BEST_SPEED);
-        compressor.setInput(input);
-        compressor.finish();
-        ByteArrayOutputStream bos = new ByteArrayOutputStream(input.length);
-        byte[] buf = new byte[8192];
-        while (!compressor.finished()) {
-            int count = compressor.deflate(buf);
-            bos.write(buf, 0, count);
-        }
-        try {
-            bos.close();
-        } catch (IOException ignored) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(8192);
+        try (DeflaterOutputStream deflaterOutputStream = new DeflaterOutputStream(bos, compressor, 8192)) {
+            SerializationUtil.serialize(input, deflaterOutputStream);
+            deflaterOutputStream.finish();
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new RuntimeException(e);
+        } finally {
+            compressor.end();
         }
         return bos.toByteArray();
     }
@@ -73,7 +69,7 @@ public class Utils {
     }
 
     public static Serializable decompress(byte[] compressedData) {
-        return (Serializable) ByteArrayUtils.byteArrayToObject(decompress(compressedData, 0, compressedData.length));
+        return SerializationUtil.deserialize(decompress(compressedData, 0, compressedData.length));
     }
 
 }
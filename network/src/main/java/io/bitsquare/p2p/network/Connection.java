@@ -3,9 +3,10 @@ package io.bitsquare.p2p.network;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.Uninterruptibles;
 import io.bitsquare.app.Log;
+import io.bitsquare.app.SampledLogger;
 import io.bitsquare.app.Version;
-import io.bitsquare.common.ByteArrayUtils;
 import io.bitsquare.common.UserThread;
+import io.bitsquare.common.util.SerializationUtil;
 import io.bitsquare.p2p.Address;
 import io.bitsquare.p2p.Message;
 import io.bitsquare.p2p.Utils;
@@ -32,12 +33,19 @@ public class Connection implements MessageListener {
     private static final int MAX_MSG_SIZE = 5 * 1024 * 1024;         // 5 MB of compressed data
     //timeout on blocking Socket operations like ServerSocket.accept() or SocketInputStream.read()
     private static final int SOCKET_TIMEOUT = 1 * 60 * 1000;        // 1 min.
+    private static final SampledLogger sentMessagesLog = new SampledLogger(log, "Sent messages", 10, TimeUnit.SECONDS);
+    private static final SampledLogger receivedMessagesLog = new SampledLogger(log, "Received messages", 10, TimeUnit.SECONDS);
     private ConnectionPriority connectionPriority;
 
     public static int getMaxMsgSize() {
         return MAX_MSG_SIZE;
     }
 
+    // Used instead of message.toString() which might contain large data (e.g. a GetDataResponse)
+    private static String getMessageSummary(Message message, long size) {
+        return message.getClass().getSimpleName() + (size >= 0 ? " (" + size + " bytes)" : "");
+    }
+
     private final Socket socket;
     private final MessageListener messageListener;
     private final ConnectionListener connectionListener;
@@ -133,19 +141,22 @@ public class Connection implements MessageListener {
         Log.traceCall();
         if (!stopped) {
             try {
-                log.info("\n\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n" +
-                        "Write object to outputStream to peer: {} (uid={})\nmessage={}"
-                        + "\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n", getPeerAddress(), uid, message);
+                if (Log.isFullNetworkDataLogged())
+                    log.info("\n\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n" +
+                            "Write object to outputStream to peer: {} (uid={})\nmessage={}"
+                            + "\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n", getPeerAddress(), uid, message);
 
                 Object objectToWrite;
+                // We only know the size if we compress, otherwise we would need to serialize the message twice
+                long size = -1;
                 if (useCompression) {
-                    byte[] messageAsBytes = ByteArrayUtils.objectToByteArray(message);
-                    // log.trace("Write object uncompressed data size: " + messageAsBytes.length);
+                    // log.trace("Write object uncompressed data size: " + SerializationUtil.getSerializedSize(message));
                     byte[] compressed = Utils.compress(message);
                     //log.trace("Write object compressed data size: " + compressed.length);
                     objectToWrite = compressed;
+                    size = compressed.length;
                 } else {
-                    // log.trace("Write object data size: " + ByteArrayUtils.objectToByteArray(message).length);
+                    // log.trace("Write object data size: " + SerializationUtil.getSerializedSize(message));
                     objectToWrite = message;
                 }
                 if (!stopped) {
@@ -154,6 +165,9 @@ public class Connection implements MessageListener {
                         objectOutputStream.flush();
                     }
                     sharedSpace.updateLastActivityDate();
+
+                    long finalSize = size;
+                    sentMessagesLog.log(() -> getMessageSummary(message, finalSize));
                 }
             } catch (IOException e) {
                 // an exception lead to a shutdown
@@ -496,11 +510,12 @@ public class Connection implements MessageListener {
                         Object rawInputObject = objectInputStream.readObject();
                         log.trace("New data arrived at inputHandler.Connection=" + sharedSpace.getConnectionInfo());
 
-                        log.info("\n\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n" +
-                                "New data arrived at inputHandler.\nReceived object={}"
-                                + "\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n", rawInputObject);
+                        if (Log.isFullNetworkDataLogged())
+                            log.info("\n\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n" +
+                                    "New data arrived at inputHandler.\nReceived object={}"
+                                    + "\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n", rawInputObject);
 
-                        int size = ByteArrayUtils.objectToByteArray(rawInputObject).length;
+                        long size = SerializationUtil.getSerializedSize(rawInputObject);
                         if (size > getMaxMsgSize()) {
                             sharedSpace.reportIllegalRequest(IllegalRequest.MaxSizeExceeded);
                             return;
@@ -523,7 +538,7 @@ public class Connection implements MessageListener {
                                 sharedSpace.reportIllegalRequest(IllegalRequest.InvalidDataType);
                             }
                         }
-                        //log.trace("Read object decompressed data size: " + ByteArrayUtils.objectToByteArray(serializable).length);
+                        //log.trace("Read object decompressed data size: " + SerializationUtil.getSerializedSize(serializable));
 
                         // compressed size might be bigger theoretically so we check again after decompression
                         if (size > getMaxMsgSize()) {
@@ -536,6 +551,8 @@ public class Connection implements MessageListener {
                         }
 
                         Message message = (Message) serializable;
+                        long finalSize = size;
+                        receivedMessagesLog.log(() -> getMessageSummary(message, finalSize));
                         if (message.networkId() != Version.NETWORK_ID) {
                             sharedSpace.reportIllegalRequest(IllegalRequest.WrongNetworkId);
                             return;
@@ -6,4 +6,11 @@ public interface HashMapChangedListener {
     void onAdded(ProtectedData entry);
 
     void onRemoved(ProtectedData entry);
+
+    // Called around a batch of changes (e.g. the data of a GetDataResponse), so listeners can coalesce their updates
+    default void onBatchStarted() {
+    }
+
+    default void onBatchCompleted() {
+    }
 }
@@ -2,6 +2,7 @@ package io.bitsquare.p2p.storage;
 
 import com.google.common.annotations.VisibleForTesting;
 import io.bitsquare.app.Log;
+import io.bitsquare.app.SampledLogger;
 import io.bitsquare.common.ByteArray;
 import io.bitsquare.common.UserThread;
 import io.bitsquare.common.crypto.CryptoException;
@@ -16,23 +17,22 @@ import io.bitsquare.p2p.network.MessageListener;
 import io.bitsquare.p2p.network.NetworkNode;
 import io.bitsquare.p2p.peers.PeerGroup;
 import io.bitsquare.p2p.storage.data.*;
-import io.bitsquare.p2p.storage.messages.AddDataMessage;
-import io.bitsquare.p2p.storage.messages.DataBroadcastMessage;
-import io.bitsquare.p2p.storage.messages.RemoveDataMessage;
-import io.bitsquare.p2p.storage.messages.RemoveMailboxDataMessage;
+import io.bitsquare.p2p.storage.messages.*;
+import io.bitsquare.storage.PersistenceService;
 import io.bitsquare.storage.Storage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.spongycastle.util.encoders.Hex;
 
 import javax.annotation.Nullable;
 import java.io.File;
 import java.security.KeyPair;
 import java.security.PublicKey;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.*;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 // Run in UserThread
 public class ProtectedExpirableDataStorage implements MessageListener {
@@ -41,10 +41,12 @@ public class ProtectedExpirableDataStorage implements MessageListener {
     @VisibleForTesting
     public static int CHECK_TTL_INTERVAL = 10 * 60 * 1000;
 
+    private static final SampledLogger dataChangesLog = new SampledLogger(log, "Data storage changes", 10, TimeUnit.SECONDS);
+
     private final PeerGroup peerGroup;
     private final Map<ByteArray, ProtectedData> map = new HashMap<>();
     private final CopyOnWriteArraySet<HashMapChangedListener> hashMapChangedListeners = new CopyOnWriteArraySet<>();
-    private HashMap<ByteArray, Integer> sequenceNumberMap = new HashMap<>();
+    private final HashMap<ByteArray, Integer> sequenceNumberMap = new HashMap<>();
     private final Storage<HashMap> storage;
     private final Timer timer = new Timer();
     private volatile boolean shutDownInProgress;
@@ -59,15 +61,18 @@ public class ProtectedExpirableDataStorage implements MessageListener {
         this.peerGroup = peerGroup;
 
         storage = new Storage<>(storageDir);
+        // Frequent bulk writes from the network must not delay the writes of trades
+        storage.setPriority(PersistenceService.Priority.LOW);
 
         init();
     }
 
     private void init() {
         Log.traceCall();
-        HashMap<ByteArray, Integer> persisted = storage.initAndGetPersisted(sequenceNumberMap, "SequenceNumberMap");
+        // The journal writes to the sequenceNumberMap instance, so we copy the persisted entries instead of replacing it
+        HashMap<ByteArray, Integer> persisted = storage.initAndGetPersistedWithJournal(sequenceNumberMap, "SequenceNumberMap");
         if (persisted != null) {
-            sequenceNumberMap = persisted;
+            sequenceNumberMap.putAll(persisted);
         }
 
         NetworkNode networkNode = peerGroup.getNetworkNode();
@@ -95,10 +100,14 @@ public class ProtectedExpirableDataStorage implements MessageListener {
         // object when we get it sent from new peers, we don’t remove the sequence number from the map. 
         // That way a add message for an already expired data will fail because the sequence number 
         // is equal and not larger. 
+        // The listeners get notified so that indexes built from the data (e.g. the order book) stay in sync.
         Map<ByteArray, ProtectedData> temp = new HashMap<>(map);
         temp.entrySet().stream()
                 .filter(entry -> entry.getValue().isExpired())
-                .forEach(entry -> map.remove(entry.getKey()));
+                .forEach(entry -> {
+                    map.remove(entry.getKey());
+                    hashMapChangedListeners.stream().forEach(e -> e.onRemoved(entry.getValue()));
+                });
     }
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -108,11 +117,15 @@ public class ProtectedExpirableDataStorage implements MessageListener {
     @Override
     public void onMessage(Message message, Connection connection) {
         if (message instanceof DataBroadcastMessage) {
-            Log.traceCall(message.toString());
+            Log.traceCall(message.getClass().getSimpleName());
             if (connection.isAuthenticated()) {
-                log.trace("ProtectedExpirableDataMessage received " + message + " on connection " + connection);
+                log.trace("ProtectedExpirableDataMessage received {} on connection {}", message, connection);
                 if (message instanceof AddDataMessage) {
                     add(((AddDataMessage) message).data, connection.getPeerAddress());
+                } else if (message instanceof AddDataBatchMessage) {
+                    addAll(((AddDataBatchMessage) message).dataList, connection.getPeerAddress());
+                } else if (message instanceof RefreshTTLMessage) {
+                    refreshTTL((RefreshTTLMessage) message, connection.getPeerAddress());
                 } else if (message instanceof RemoveDataMessage) {
                     remove(((RemoveDataMessage) message).data, connection.getPeerAddress());
                 } else if (message instanceof RemoveMailboxDataMessage) {
@@ -155,17 +168,13 @@ public class ProtectedExpirableDataStorage implements MessageListener {
         if (result) {
             map.put(hashOfPayload, protectedData);
             sequenceNumberMap.put(hashOfPayload, protectedData.sequenceNumber);
+            storage.queueUpAddedEntry(hashOfPayload, protectedData.sequenceNumber);
 
-            StringBuilder sb = new StringBuilder("\n\n------------------------------------------------------------\n");
-            sb.append("Data set after addProtectedExpirableData:");
-            map.values().stream().forEach(e -> sb.append("\n").append(e.toString()).append("\n"));
-            sb.append("\n------------------------------------------------------------\n");
-            log.info(sb.toString());
+            logDataSet("Data set after addProtectedExpirableData:");
+            dataChangesLog.log(() -> "Added " + getSummary(protectedData, hashOfPayload));
 
             if (!containsKey)
                 broadcast(new AddDataMessage(protectedData), sender);
-
-            storage.queueUpForSave();
             hashMapChangedListeners.stream().forEach(e -> e.onAdded(protectedData));
         } else {
             log.trace("add failed");
@@ -173,6 +182,119 @@ public class ProtectedExpirableDataStorage implements MessageListener {
         return result;
     }
 
+    /**
+     * Like add but the new entries get broadcast in a single AddDataBatchMessage.
+     * Hashing and signature verification are done in parallel.
+     *
+     * @return The entries which have been added.
+     */
+    public List<ProtectedData> addAll(List<ProtectedData> protectedDataList, @Nullable Address sender) {
+        Log.traceCall();
+        List<ByteArray> hashes = protectedDataList.parallelStream()
+                .map(protectedData -> getHashAsByteArray(protectedData.expirablePayload))
+                .collect(Collectors.toList());
+        List<Boolean> validities = protectedDataList.parallelStream()
+                .map(protectedData -> checkPublicKeys(protectedData, true) && checkSignature(protectedData))
+                .collect(Collectors.toList());
+
+        List<ProtectedData> addedEntries = new ArrayList<>();
+        ArrayList<ProtectedData> newEntries = new ArrayList<>();
+        for (int i = 0; i < protectedDataList.size(); i++) {
+            ProtectedData protectedData = protectedDataList.get(i);
+            ByteArray hashOfPayload = hashes.get(i);
+            boolean result = validities.get(i) && isSequenceNrValid(protectedData, hashOfPayload);
+
+            boolean containsKey = map.containsKey(hashOfPayload);
+            if (containsKey)
+                result &= checkIfStoredDataPubKeyMatchesNewDataPubKey(protectedData, hashOfPayload);
+
+            if (result) {
+                map.put(hashOfPayload, protectedData);
+                sequenceNumberMap.put(hashOfPayload, protectedData.sequenceNumber);
+                storage.queueUpAddedEntry(hashOfPayload, protectedData.sequenceNumber);
+                addedEntries.add(protectedData);
+                if (!containsKey)
+                    newEntries.add(protectedData);
+            }
+        }
+
+        logDataSet("Data set after addAll:");
+        dataChangesLog.log(() -> "Added " + addedEntries.size() + " of " + protectedDataList.size() + " entries in a batch, "
+                + newEntries.size() + " of them are new. Data set contains " + map.size() + " entries.");
+
+        if (!newEntries.isEmpty())
+            broadcast(new AddDataBatchMessage(newEntries), sender);
+        if (!addedEntries.isEmpty()) {
+            hashMapChangedListeners.stream().forEach(HashMapChangedListener::onBatchStarted);
+            try {
+                addedEntries.stream().forEach(protectedData ->
+                        hashMapChangedListeners.stream().forEach(e -> e.onAdded(protectedData)));
+            } finally {
+                hashMapChangedListeners.stream().forEach(HashMapChangedListener::onBatchCompleted);
+            }
+        }
+        return addedEntries;
+    }
+
+    /**
+     * Resets the TTL of a stored entry if the message has a higher sequence number and a valid signature of the owner.
+     * As the receiver has the payload already, only the hash, sequence number and signature are broadcast.
+     */
+    public boolean refreshTTL(RefreshTTLMessage refreshTTLMessage, @Nullable Address sender) {
+        Log.traceCall();
+        ByteArray hashOfPayload = new ByteArray(refreshTTLMessage.hashOfPayload);
+        ProtectedData storedData = map.get(hashOfPayload);
+        if (storedData == null) {
+            // We cannot verify the signature without the payload, so we don't forward it. If we have missed the data we
+            // get it again when the owner republishes it.
+            log.debug("Refresh TTL ignored as we don't have an entry for that data.");
+            return false;
+        }
+        // Mailbox data is never refreshed, the receiver removes it
+        if (storedData instanceof ProtectedMailboxData) {
+            log.warn("Refresh TTL is not supported for mailbox data.");
+            return false;
+        }
+
+        // We require a higher sequence number (not an equal one like at add) to avoid that a refresh gets broadcast
+        // endlessly
+        Integer storedSequenceNumber = sequenceNumberMap.get(hashOfPayload);
+        if (storedSequenceNumber != null && refreshTTLMessage.sequenceNumber <= storedSequenceNumber) {
+            log.trace("Sequence number is invalid. newSequenceNumber="
+                    + refreshTTLMessage.sequenceNumber + " / storedSequenceNumber=" + storedSequenceNumber);
+            return false;
+        }
+
+        // The new entry has the same format as one created at add, so it can be delivered to new peers as usual
+        ProtectedData refreshedData = new ProtectedData(storedData.expirablePayload, storedData.ttl,
+                storedData.ownerStoragePubKey, refreshTTLMessage.sequenceNumber, refreshTTLMessage.signature);
+        if (checkSignature(refreshedData)) {
+            map.put(hashOfPayload, refreshedData);
+            sequenceNumberMap.put(hashOfPayload, refreshedData.sequenceNumber);
+            storage.queueUpAddedEntry(hashOfPayload, refreshedData.sequenceNumber);
+
+            dataChangesLog.log(() -> "Refreshed TTL of " + getSummary(refreshedData, hashOfPayload));
+            broadcast(refreshTTLMessage, sender);
+            return true;
+        } else {
+            log.trace("refreshTTL failed");
+            return false;
+        }
+    }
+
+    /**
+     * Like add but the data gets broadcast also if we have it already, so peers which have missed it get it again.
+     * Peers which have the data already don't broadcast it further.
+     */
+    public boolean republish(ProtectedData protectedData, @Nullable Address sender) {
+        Log.traceCall();
+        boolean containsKey = map.containsKey(getHashAsByteArray(protectedData.expirablePayload));
+        boolean result = add(protectedData, sender);
+        if (result && containsKey)
+            broadcast(new AddDataMessage(protectedData), sender);
+        return result;
+    }
+
     public boolean remove(ProtectedData protectedData, @Nullable Address sender) {
         Log.traceCall();
         ByteArray hashOfPayload = getHashAsByteArray(protectedData.expirablePayload);
@@ -191,7 +313,7 @@ public class ProtectedExpirableDataStorage implements MessageListener {
             broadcast(new RemoveDataMessage(protectedData), sender);
 
             sequenceNumberMap.put(hashOfPayload, protectedData.sequenceNumber);
-            storage.queueUpForSave();
+            storage.queueUpAddedEntry(hashOfPayload, protectedData.sequenceNumber);
         } else {
             log.debug("remove failed");
         }
@@ -216,7 +338,7 @@ public class ProtectedExpirableDataStorage implements MessageListener {
             broadcast(new RemoveMailboxDataMessage(protectedMailboxData), sender);
 
             sequenceNumberMap.put(hashOfData, protectedMailboxData.sequenceNumber);
-            storage.queueUpForSave();
+            storage.queueUpAddedEntry(hashOfData, protectedMailboxData.sequenceNumber);
         } else {
             log.debug("removeMailboxData failed");
         }
@@ -227,19 +349,52 @@ public class ProtectedExpirableDataStorage implements MessageListener {
         return map;
     }
 
+    public boolean contains(ExpirablePayload payload) {
+        return map.containsKey(getHashAsByteArray(payload));
+    }
+
     public ProtectedData getDataWithSignedSeqNr(ExpirablePayload payload, KeyPair ownerStoragePubKey)
             throws CryptoException {
         Log.traceCall();
         ByteArray hashOfData = getHashAsByteArray(payload);
-        int sequenceNumber;
-        if (sequenceNumberMap.containsKey(hashOfData))
-            sequenceNumber = sequenceNumberMap.get(hashOfData) + 1;
-        else
-            sequenceNumber = 0;
+        return getDataWithSignedSeqNr(payload, getNextSequenceNumber(hashOfData), ownerStoragePubKey);
+    }
 
-        byte[] hashOfDataAndSeqNr = Hash.getHash(new DataAndSeqNr(payload, sequenceNumber));
-        byte[] signature = Sig.sign(ownerStoragePubKey.getPrivate(), hashOfDataAndSeqNr);
-        return new ProtectedData(payload, payload.getTTL(), ownerStoragePubKey.getPublic(), sequenceNumber, signature);
+    /**
+     * Signs all payloads in parallel.
+     */
+    public List<ProtectedData> getDataWithSignedSeqNr(List<? extends ExpirablePayload> payloads, KeyPair ownerStoragePubKey)
+            throws CryptoException {
+        Log.traceCall();
+        List<ByteArray> hashes = payloads.parallelStream()
+                .map(this::getHashAsByteArray)
+                .collect(Collectors.toList());
+        // The sequenceNumberMap is only accessed from the UserThread
+        List<Integer> sequenceNumbers = hashes.stream()
+                .map(this::getNextSequenceNumber)
+                .collect(Collectors.toList());
+        List<ProtectedData> protectedDataList = IntStream.range(0, payloads.size()).parallel()
+                .mapToObj(i -> {
+                    try {
+                        return getDataWithSignedSeqNr(payloads.get(i), sequenceNumbers.get(i), ownerStoragePubKey);
+                    } catch (CryptoException e) {
+                        log.error(e.getMessage());
+                        return null;
+                    }
+                })
+                .collect(Collectors.toList());
+        if (protectedDataList.contains(null))
+            throw new CryptoException("Signing of at least one of " + payloads.size() + " payloads failed.");
+
+        return protectedDataList;
+    }
+
+    public RefreshTTLMessage getRefreshTTLMessage(ExpirablePayload payload, KeyPair ownerStoragePubKey)
+            throws CryptoException {
+        Log.traceCall();
+        ByteArray hashOfPayload = getHashAsByteArray(payload);
+        ProtectedData protectedData = getDataWithSignedSeqNr(payload, getNextSequenceNumber(hashOfPayload), ownerStoragePubKey);
+        return new RefreshTTLMessage(hashOfPayload.bytes, protectedData.sequenceNumber, protectedData.signature);
     }
 
     public ProtectedMailboxData getMailboxDataWithSignedSeqNr(ExpirableMailboxPayload expirableMailboxPayload,
@@ -247,11 +402,7 @@ public class ProtectedExpirableDataStorage implements MessageListener {
             throws CryptoException {
         Log.traceCall();
         ByteArray hashOfData = getHashAsByteArray(expirableMailboxPayload);
-        int sequenceNumber;
-        if (sequenceNumberMap.containsKey(hashOfData))
-            sequenceNumber = sequenceNumberMap.get(hashOfData) + 1;
-        else
-            sequenceNumber = 0;
+        int sequenceNumber = getNextSequenceNumber(hashOfData);
 
         byte[] hashOfDataAndSeqNr = Hash.getHash(new DataAndSeqNr(expirableMailboxPayload, sequenceNumber));
         byte[] signature = Sig.sign(storageSignaturePubKey.getPrivate(), hashOfDataAndSeqNr);
@@ -275,11 +426,40 @@ public class ProtectedExpirableDataStorage implements MessageListener {
         log.trace("Data removed from our map. We broadcast the message to our peers.");
         hashMapChangedListeners.stream().forEach(e -> e.onRemoved(protectedData));
 
-        StringBuilder sb = new StringBuilder("\n\n------------------------------------------------------------\n" +
-                "Data set after removeProtectedExpirableData:");
-        map.values().stream().forEach(e -> sb.append("\n").append(e.toString()));
-        sb.append("\n------------------------------------------------------------\n");
-        log.info(sb.toString());
+        logDataSet("Data set after removeProtectedExpirableData:");
+        dataChangesLog.log(() -> "Removed " + getSummary(protectedData, hashOfPayload));
+    }
+
+    // Only if enabled, as the output grows with the size of the data set
+    private void logDataSet(String title) {
+        if (Log.isFullNetworkDataLogged()) {
+            StringBuilder sb = new StringBuilder("\n\n------------------------------------------------------------\n");
+            sb.append(title);
+            map.values().stream().forEach(e -> sb.append("\n").append(e.toString()).append("\n"));
+            sb.append("\n------------------------------------------------------------\n");
+            log.info(sb.toString());
+        }
+    }
+
+    private String getSummary(ProtectedData protectedData, ByteArray hashOfPayload) {
+        return protectedData.expirablePayload.getClass().getSimpleName()
+                + " (hash=" + Hex.toHexString(hashOfPayload.bytes).substring(0, 8)
+                + ", sequenceNumber=" + protectedData.sequenceNumber
+                + "). Data set contains " + map.size() + " entries.";
+    }
+
+    private ProtectedData getDataWithSignedSeqNr(ExpirablePayload payload, int sequenceNumber, KeyPair ownerStoragePubKey)
+            throws CryptoException {
+        byte[] hashOfDataAndSeqNr = Hash.getHash(new DataAndSeqNr(payload, sequenceNumber));
+        byte[] signature = Sig.sign(ownerStoragePubKey.getPrivate(), hashOfDataAndSeqNr);
+        return new ProtectedData(payload, payload.getTTL(), ownerStoragePubKey.getPublic(), sequenceNumber, signature);
+    }
+
+    private int getNextSequenceNumber(ByteArray hashOfData) {
+        if (sequenceNumberMap.containsKey(hashOfData))
+            return sequenceNumberMap.get(hashOfData) + 1;
+        else
+            return 0;
     }
 
     private boolean isSequenceNrValid(ProtectedData data, ByteArray hashOfData) {
@@ -358,7 +538,7 @@ public class ProtectedExpirableDataStorage implements MessageListener {
     }
 
     private void broadcast(DataBroadcastMessage message, @Nullable Address sender) {
-        Log.traceCall(message.toString());
+        Log.traceCall(message.getClass().getSimpleName());
         peerGroup.broadcast(message, sender);
     }
 
@@ -0,0 +1,42 @@
+package io.bitsquare.p2p.storage.messages;
+
+import io.bitsquare.app.Version;
+import io.bitsquare.p2p.storage.data.ProtectedData;
+
+import java.util.ArrayList;
+
+/**
+ * Carries several ProtectedData entries in one broadcast (e.g. all our offers at re-publishing).
+ */
+public final class AddDataBatchMessage extends DataBroadcastMessage {
+    // That object is sent over the wire, so we need to take care of version compatibility.
+    private static final long serialVersionUID = Version.NETWORK_PROTOCOL_VERSION;
+
+    public final ArrayList<ProtectedData> dataList;
+
+    public AddDataBatchMessage(ArrayList<ProtectedData> dataList) {
+        this.dataList = dataList;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AddDataBatchMessage)) return false;
+
+        AddDataBatchMessage that = (AddDataBatchMessage) o;
+
+        return !(dataList != null ? !dataList.equals(that.dataList) : that.dataList != null);
+    }
+
+    @Override
+    public int hashCode() {
+        return dataList != null ? dataList.hashCode() : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "AddDataBatchMessage{" +
+                "dataList.size()=" + (dataList != null ? dataList.size() : 0) +
+                "} " + super.toString();
+    }
+}
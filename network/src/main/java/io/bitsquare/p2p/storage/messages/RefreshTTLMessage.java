@@ -0,0 +1,52 @@
+package io.bitsquare.p2p.storage.messages;
+
+import io.bitsquare.app.Version;
+
+import java.util.Arrays;
+
+/**
+ * Resets the TTL of data the receiver already has, without sending the payload again.
+ * The signature covers the payload and the new sequence number like in ProtectedData, so the receiver can verify it
+ * with the payload and owner key of its stored entry.
+ */
+public final class RefreshTTLMessage extends DataBroadcastMessage {
+    // That object is sent over the wire, so we need to take care of version compatibility.
+    private static final long serialVersionUID = Version.NETWORK_PROTOCOL_VERSION;
+
+    public final byte[] hashOfPayload;
+    public final int sequenceNumber;
+    public final byte[] signature;
+
+    public RefreshTTLMessage(byte[] hashOfPayload, int sequenceNumber, byte[] signature) {
+        this.hashOfPayload = hashOfPayload;
+        this.sequenceNumber = sequenceNumber;
+        this.signature = signature;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RefreshTTLMessage)) return false;
+
+        RefreshTTLMessage that = (RefreshTTLMessage) o;
+
+        if (sequenceNumber != that.sequenceNumber) return false;
+        if (!Arrays.equals(hashOfPayload, that.hashOfPayload)) return false;
+        return Arrays.equals(signature, that.signature);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = hashOfPayload != null ? Arrays.hashCode(hashOfPayload) : 0;
+        result = 31 * result + sequenceNumber;
+        result = 31 * result + (signature != null ? Arrays.hashCode(signature) : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "RefreshTTLMessage{" +
+                "sequenceNumber=" + sequenceNumber +
+                "} " + super.toString();
+    }
+}
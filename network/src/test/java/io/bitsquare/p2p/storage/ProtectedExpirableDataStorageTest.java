@@ -0,0 +1,116 @@
+package io.bitsquare.p2p.storage;
+
+import io.bitsquare.common.UserThread;
+import io.bitsquare.common.crypto.KeyRing;
+import io.bitsquare.common.crypto.KeyStorage;
+import io.bitsquare.p2p.network.LocalhostNetworkNode;
+import io.bitsquare.p2p.peers.PeerGroup;
+import io.bitsquare.p2p.storage.data.ProtectedData;
+import io.bitsquare.p2p.storage.messages.RefreshTTLMessage;
+import io.bitsquare.p2p.storage.mocks.MockData;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.security.KeyPair;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+// Unlike ProtectedDataStorageTest it does not need a running seed node, the network node is never started
+public class ProtectedExpirableDataStorageTest {
+    private PeerGroup peerGroup;
+    private ProtectedExpirableDataStorage dataStorage;
+    private KeyPair storageSignatureKeyPair1, storageSignatureKeyPair2;
+    private MockData mockData;
+
+    @Before
+    public void setup() throws Exception {
+        Security.addProvider(new BouncyCastleProvider());
+        File dir1 = createTempDir("temp_tests1");
+        File dir2 = createTempDir("temp_tests2");
+
+        UserThread.setExecutor(Executors.newSingleThreadExecutor());
+
+        storageSignatureKeyPair1 = new KeyRing(new KeyStorage(dir1)).getSignatureKeyPair();
+        storageSignatureKeyPair2 = new KeyRing(new KeyStorage(dir2)).getSignatureKeyPair();
+
+        peerGroup = new PeerGroup(new LocalhostNetworkNode(8001), new HashSet<>());
+        dataStorage = new ProtectedExpirableDataStorage(peerGroup, createTempDir("temp_tests_storage"));
+
+        mockData = new MockData("mockData", storageSignatureKeyPair1.getPublic());
+    }
+
+    @After
+    public void tearDown() {
+        if (dataStorage != null) dataStorage.shutDown();
+        if (peerGroup != null) peerGroup.shutDown();
+    }
+
+    @Test
+    public void testAddAll() throws Exception {
+        List<MockData> payloads = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            payloads.add(new MockData("mockData" + i, storageSignatureKeyPair1.getPublic()));
+        }
+        List<ProtectedData> dataList = dataStorage.getDataWithSignedSeqNr(payloads, storageSignatureKeyPair1);
+        Assert.assertEquals(10, dataStorage.addAll(dataList, null).size());
+        Assert.assertEquals(10, dataStorage.getMap().size());
+
+        // same sequence numbers are accepted, lower ones not
+        Assert.assertEquals(10, dataStorage.addAll(dataList, null).size());
+        dataList = dataStorage.getDataWithSignedSeqNr(payloads, storageSignatureKeyPair1);
+        Assert.assertEquals(1, dataList.get(0).sequenceNumber);
+        // signed by a different key
+        List<ProtectedData> invalidDataList = dataStorage.getDataWithSignedSeqNr(payloads, storageSignatureKeyPair2);
+        Assert.assertEquals(0, dataStorage.addAll(invalidDataList, null).size());
+        Assert.assertEquals(10, dataStorage.addAll(dataList, null).size());
+        Assert.assertEquals(10, dataStorage.getMap().size());
+    }
+
+    @Test
+    public void testRefreshTTL() throws Exception {
+        RefreshTTLMessage refreshTTLMessage = dataStorage.getRefreshTTLMessage(mockData, storageSignatureKeyPair1);
+        // we don't have the data yet, the message gets ignored
+        Assert.assertFalse(dataStorage.refreshTTL(refreshTTLMessage, null));
+        Assert.assertEquals(0, dataStorage.getMap().size());
+
+        ProtectedData data = dataStorage.getDataWithSignedSeqNr(mockData, storageSignatureKeyPair1);
+        Assert.assertTrue(dataStorage.add(data, null));
+        refreshTTLMessage = dataStorage.getRefreshTTLMessage(mockData, storageSignatureKeyPair1);
+        Assert.assertEquals(data.sequenceNumber + 1, refreshTTLMessage.sequenceNumber);
+        Assert.assertTrue(dataStorage.refreshTTL(refreshTTLMessage, null));
+        // same sequence number is rejected
+        Assert.assertFalse(dataStorage.refreshTTL(refreshTTLMessage, null));
+
+        // signed by a different key
+        RefreshTTLMessage invalidRefreshTTLMessage = dataStorage.getRefreshTTLMessage(mockData, storageSignatureKeyPair2);
+        Assert.assertFalse(dataStorage.refreshTTL(invalidRefreshTTLMessage, null));
+        Assert.assertEquals(1, dataStorage.getMap().size());
+    }
+
+    @Test
+    public void testRepublish() throws Exception {
+        ProtectedData data = dataStorage.getDataWithSignedSeqNr(mockData, storageSignatureKeyPair1);
+        Assert.assertTrue(dataStorage.republish(data, null));
+        data = dataStorage.getDataWithSignedSeqNr(mockData, storageSignatureKeyPair1);
+        Assert.assertTrue(dataStorage.republish(data, null));
+        Assert.assertEquals(1, dataStorage.getMap().size());
+
+        // signed by a different key
+        ProtectedData invalidData = dataStorage.getDataWithSignedSeqNr(mockData, storageSignatureKeyPair2);
+        Assert.assertFalse(dataStorage.republish(invalidData, null));
+    }
+
+    private File createTempDir(String prefix) throws Exception {
+        File dir = File.createTempFile(prefix, "");
+        dir.delete();
+        dir.mkdir();
+        return dir;
+    }
+}